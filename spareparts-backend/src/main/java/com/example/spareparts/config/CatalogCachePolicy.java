@@ -0,0 +1,153 @@
+package com.example.spareparts.config;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import com.example.spareparts.service.catalog.BrandCatalogReplica;
+import com.example.spareparts.service.catalog.CategoryCatalogReplica;
+import com.example.spareparts.service.catalog.FirestoreCollectionReplica;
+import com.example.spareparts.service.catalog.ProductCatalogReplica;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * HTTP caching for the public catalog endpoints.
+ * <p>
+ * Validators come from the in-memory replicas: collection responses use the replica
+ * version and last sync time, single products their {@code updatedAt}. Conditional
+ * requests are answered with 304 before the response body is computed, so a
+ * revalidation never reaches Firestore. Versions restart with the process, so the
+ * ETags carry the start time of this instance. While a replica is still loading no
+ * validators are sent.
+ */
+@Component
+public class CatalogCachePolicy {
+
+    private static final String INSTANCE = Long.toString(System.currentTimeMillis(), 36);
+
+    @Value("${app.cache.catalog.max-age-seconds:60}")
+    private long maxAgeSeconds;
+
+    @Value("${app.cache.catalog.stale-while-revalidate-seconds:300}")
+    private long staleWhileRevalidateSeconds;
+
+    @Value("${app.cache.catalog.shared:true}")
+    private boolean shared;
+
+    private final ProductCatalogReplica productReplica;
+    private final CategoryCatalogReplica categoryReplica;
+    private final BrandCatalogReplica brandReplica;
+
+    public CatalogCachePolicy(ProductCatalogReplica productReplica, CategoryCatalogReplica categoryReplica,
+            BrandCatalogReplica brandReplica) {
+        this.productReplica = productReplica;
+        this.categoryReplica = categoryReplica;
+        this.brandReplica = brandReplica;
+    }
+
+    /**
+     * An ETag and Last-Modified pair for one response.
+     */
+    public static class Validators {
+        private final String etag;
+        private final long lastModified;
+
+        Validators(String etag, long lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    public CacheControl cacheControl() {
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS)
+                .staleWhileRevalidate(staleWhileRevalidateSeconds, TimeUnit.SECONDS);
+        return shared ? cacheControl.cachePublic() : cacheControl.cachePrivate();
+    }
+
+    public Validators products() {
+        return collection("p", productReplica);
+    }
+
+    public Validators categories() {
+        return collection("c", categoryReplica);
+    }
+
+    public Validators brands() {
+        return collection("b", brandReplica);
+    }
+
+    /**
+     * Validators for responses built from products, brands and categories together.
+     */
+    public Validators catalog() {
+        if (!productReplica.isReady() || !categoryReplica.isReady() || !brandReplica.isReady()) {
+            return null;
+        }
+        String etag = "\"a" + INSTANCE + "-" + productReplica.getVersion() + "." + categoryReplica.getVersion()
+                + "." + brandReplica.getVersion() + "\"";
+        long lastModified = Math.max(productReplica.getLastSyncedAt(),
+                Math.max(categoryReplica.getLastSyncedAt(), brandReplica.getLastSyncedAt()));
+        return new Validators(etag, lastModified);
+    }
+
+    public Validators product(String id) {
+        if (!productReplica.isReady()) {
+            return null;
+        }
+        Optional<ProductDocument> product = productReplica.findById(id);
+        if (product.isEmpty() || product.get().getUpdatedAt() <= 0) {
+            return null;
+        }
+        long updatedAt = product.get().getUpdatedAt();
+        return new Validators("\"" + id + "-" + updatedAt + "\"", updatedAt);
+    }
+
+    /**
+     * Whether the request's If-None-Match / If-Modified-Since still match the validators.
+     * Also writes ETag and Last-Modified to the response, 304 or not.
+     */
+    public boolean checkNotModified(WebRequest request, Validators validators) {
+        return validators != null && request.checkNotModified(validators.getEtag(), validators.getLastModified());
+    }
+
+    public <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl()).build();
+    }
+
+    public <T> ResponseEntity<T> ok(T body) {
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(body);
+    }
+
+    /**
+     * Answers 304 if the validators still match, before the body is computed; otherwise
+     * returns the body under the cache policy. A null body becomes 404.
+     */
+    public <T> ResponseEntity<T> respond(WebRequest request, Validators validators, Supplier<T> body) {
+        if (checkNotModified(request, validators)) {
+            return notModified();
+        }
+        T result = body.get();
+        return result != null ? ok(result) : ResponseEntity.notFound().build();
+    }
+
+    private static Validators collection(String prefix, FirestoreCollectionReplica<?> replica) {
+        if (!replica.isReady()) {
+            return null;
+        }
+        return new Validators("\"" + prefix + INSTANCE + "-" + replica.getVersion() + "\"", replica.getLastSyncedAt());
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.spareparts.controller.api;
 
+import com.example.spareparts.dto.OrderStatusUpdate;
+import com.example.spareparts.dto.OrderUpdateResult;
 import com.example.spareparts.model.firestore.*;
 import com.example.spareparts.service.firestore.*;
 import com.example.spareparts.repository.firestore.*;
@@ -18,7 +20,10 @@ import java.util.Map;
 public class AdminApiController {
 
     private final ProductFirestoreService productService;
+    private final StockFirestoreService stockService;
+    private final IdempotencyFirestoreService idempotencyService;
     private final OrderFirestoreService orderService;
+    private final OrderIntakeService orderIntakeService;
     private final UserFirestoreService userService;
     private final AnalyticsFirestoreService analyticsService;
     private final CategoryFirestoreRepository categoryRepository;
@@ -26,14 +31,20 @@ public class AdminApiController {
     private final SupplierFirestoreRepository supplierRepository;
 
     public AdminApiController(ProductFirestoreService productService,
+            StockFirestoreService stockService,
+            IdempotencyFirestoreService idempotencyService,
             OrderFirestoreService orderService,
+            OrderIntakeService orderIntakeService,
             UserFirestoreService userService,
             AnalyticsFirestoreService analyticsService,
             CategoryFirestoreRepository categoryRepository,
             BrandFirestoreRepository brandRepository,
             SupplierFirestoreRepository supplierRepository) {
         this.productService = productService;
+        this.stockService = stockService;
+        this.idempotencyService = idempotencyService;
         this.orderService = orderService;
+        this.orderIntakeService = orderIntakeService;
         this.userService = userService;
         this.analyticsService = analyticsService;
         this.categoryRepository = categoryRepository;
@@ -58,11 +69,26 @@ public class AdminApiController {
         return ResponseEntity.ok(analyticsService.getInventoryAnalytics());
     }
 
+    @PostMapping("/counters/recount")
+    public ResponseEntity<Map<String, Long>> recountCollections() {
+        return ResponseEntity.ok(analyticsService.recountCollections());
+    }
+
     // ============== PRODUCTS ==============
 
     @GetMapping("/products")
-    public ResponseEntity<List<ProductDocument>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice) {
+        if (limit == null && cursor == null && sort == null && minPrice == null && maxPrice == null) {
+            return ResponseEntity.ok(productService.getAllProducts());
+        }
+        boolean descending = "desc".equalsIgnoreCase(direction);
+        return ResponseEntity.ok(productService.getProductPage(null, null, sort, descending, minPrice, maxPrice,
+                limit, cursor));
     }
 
     @GetMapping("/products/{id}")
@@ -98,9 +124,29 @@ public class AdminApiController {
 
     @PatchMapping("/products/{id}/stock")
     public ResponseEntity<Void> updateStock(@PathVariable String id,
-            @RequestParam int quantity) {
-        productService.updateStock(id, quantity);
-        return ResponseEntity.ok().build();
+            @RequestParam int quantity,
+            @RequestHeader(value = IdempotencyFirestoreService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "admin", "updateStock",
+                Map.of("productId", id, "quantity", quantity), Void.class, () -> {
+                    stockService.updateStock(id, quantity);
+                    return ResponseEntity.ok().build();
+                });
+    }
+
+    @GetMapping("/products/{id}/stock")
+    public ResponseEntity<Map<String, Object>> getStock(@PathVariable String id) {
+        return ResponseEntity.ok(Map.of("productId", id, "stock", stockService.getStock(id)));
+    }
+
+    /**
+     * Spreads a hot product's stock over several documents so concurrent sales don't
+     * contend on one; shards=0 moves it back into the product document.
+     */
+    @PutMapping("/products/{id}/stock-shards")
+    public ResponseEntity<Map<String, Object>> setStockShards(@PathVariable String id,
+            @RequestParam int shards) {
+        long stock = stockService.setStockShards(id, shards);
+        return ResponseEntity.ok(Map.of("productId", id, "stockShards", shards, "stock", stock));
     }
 
     // ============== ORDERS ==============
@@ -110,6 +156,11 @@ public class AdminApiController {
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    @GetMapping("/orders/intake/stats")
+    public ResponseEntity<Map<String, Object>> getOrderIntakeStats() {
+        return ResponseEntity.ok(orderIntakeService.stats());
+    }
+
     @GetMapping("/orders/{id}")
     public ResponseEntity<OrderDocument> getOrderById(@PathVariable String id) {
         return orderService.getOrderById(id)
@@ -149,6 +200,20 @@ public class AdminApiController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Sets statuses and tracking numbers of many orders at once, e.g. a day's shipments.
+     * Each order is reported on its own; one bad entry doesn't stop the others.
+     */
+    @PatchMapping("/orders/fulfilment")
+    public ResponseEntity<Map<String, Object>> bulkUpdateFulfilment(@RequestBody List<OrderStatusUpdate> updates) {
+        List<OrderUpdateResult> results = orderService.bulkUpdateFulfilment(updates);
+        long updated = results.stream().filter(OrderUpdateResult::isSuccess).count();
+        return ResponseEntity.ok(Map.of(
+                "updated", updated,
+                "failed", results.size() - updated,
+                "results", results));
+    }
+
     // ============== CATEGORIES ==============
 
     @GetMapping("/categories")
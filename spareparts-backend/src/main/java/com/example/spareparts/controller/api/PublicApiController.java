@@ -1,16 +1,31 @@
 package com.example.spareparts.controller.api;
 
+import com.example.spareparts.config.CatalogCachePolicy;
+import com.example.spareparts.dto.FacetSearchResponse;
+import com.example.spareparts.dto.ProductDetail;
+import com.example.spareparts.dto.ProductSummary;
 import com.example.spareparts.model.firestore.ProductDocument;
 import com.example.spareparts.model.firestore.CategoryDocument;
 import com.example.spareparts.model.firestore.BrandDocument;
 import com.example.spareparts.model.firestore.ReviewDocument;
+import com.example.spareparts.service.catalog.CatalogSnapshot;
+import com.example.spareparts.service.catalog.CategoryTree;
+import com.example.spareparts.service.catalog.FitmentIndex;
+import com.example.spareparts.service.catalog.ProductFacetIndex;
+import com.example.spareparts.service.catalog.SuggestionTrie;
+import com.example.spareparts.service.firestore.ProductDetailFirestoreService;
 import com.example.spareparts.service.firestore.ProductFirestoreService;
 import com.example.spareparts.service.firestore.ReviewFirestoreService;
 import com.example.spareparts.repository.firestore.CategoryFirestoreRepository;
 import com.example.spareparts.repository.firestore.BrandFirestoreRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,34 +38,81 @@ import java.util.Map;
 public class PublicApiController {
 
     private final ProductFirestoreService productService;
+    private final ProductDetailFirestoreService productDetailService;
     private final ReviewFirestoreService reviewService;
     private final CategoryFirestoreRepository categoryRepository;
     private final BrandFirestoreRepository brandRepository;
+    private final CatalogCachePolicy cachePolicy;
+    private final CategoryTree categoryTree;
 
     public PublicApiController(ProductFirestoreService productService,
+            ProductDetailFirestoreService productDetailService,
             ReviewFirestoreService reviewService,
             CategoryFirestoreRepository categoryRepository,
-            BrandFirestoreRepository brandRepository) {
+            BrandFirestoreRepository brandRepository,
+            CatalogCachePolicy cachePolicy,
+            CategoryTree categoryTree) {
         this.productService = productService;
+        this.productDetailService = productDetailService;
         this.reviewService = reviewService;
         this.categoryRepository = categoryRepository;
         this.brandRepository = brandRepository;
+        this.cachePolicy = cachePolicy;
+        this.categoryTree = categoryTree;
     }
 
     // ============== PRODUCTS ==============
 
+    // Listings return product summaries; the full document comes from /products/{id}.
+    // They are paginated when limit, cursor, sort or a price bound is given;
+    // without them the full list is returned for existing clients.
+
     @GetMapping("/products")
-    public ResponseEntity<List<ProductDocument>> getAllProducts() {
-        return ResponseEntity.ok(productService.getAllProducts());
+    public ResponseEntity<?> getAllProducts(WebRequest request,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice) {
+        if (limit == null && cursor == null && sort == null && minPrice == null && maxPrice == null) {
+            return cachePolicy.respond(request, cachePolicy.products(),
+                    () -> productService.getProductSummaries(null, null));
+        }
+        return cachePolicy.respond(request, cachePolicy.products(),
+                () -> productService.getProductSummaryPage(null, null, sort,
+                        "desc".equalsIgnoreCase(direction), minPrice, maxPrice, limit, cursor));
     }
 
-    @GetMapping("/products/{id}")
-    public ResponseEntity<ProductDocument> getProductById(@PathVariable String id) {
-        return productService.getProductById(id)
+    @GetMapping("/products/lookup")
+    public ResponseEntity<ProductDocument> lookupProductByCode(@RequestParam String code) {
+        return productService.lookupByCode(code)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @PostMapping("/products/lookup")
+    public ResponseEntity<Map<String, Object>> lookupProductsByCodes(@RequestBody List<String> codes) {
+        return ResponseEntity.ok(productService.lookupByCodes(codes));
+    }
+
+    @GetMapping("/products/batch")
+    public ResponseEntity<List<ProductDocument>> getProductsByIds(WebRequest request,
+            @RequestParam List<String> ids) {
+        return cachePolicy.respond(request, cachePolicy.products(), () -> productService.getProductsByIds(ids));
+    }
+
+    @PostMapping("/products/batch")
+    public ResponseEntity<List<ProductDocument>> getProductsByIdsPost(@RequestBody List<String> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    @GetMapping("/products/{id}")
+    public ResponseEntity<ProductDocument> getProductById(WebRequest request, @PathVariable String id) {
+        return cachePolicy.respond(request, cachePolicy.product(id),
+                () -> productService.getProductById(id).orElse(null));
+    }
+
     @GetMapping("/products/{id}/with-rating")
     public ResponseEntity<ProductDocument> getProductWithRating(@PathVariable String id) {
         ProductDocument product = productService.getProductWithRating(id);
@@ -60,19 +122,111 @@ public class PublicApiController {
         return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Everything the product page needs in one call: product, newest reviews, rating
+     * summary, brand and category, fetched concurrently.
+     */
+    @GetMapping("/products/{id}/detail")
+    public ResponseEntity<ProductDetail> getProductDetail(@PathVariable String id,
+            @RequestParam(required = false) Integer reviews) {
+        ProductDetail detail = productDetailService.getProductDetail(id, reviews);
+        if (detail == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // Reviews change independently of the catalog validators, so max-age only
+        return cachePolicy.ok(detail);
+    }
+
+    @GetMapping("/products/{id}/related")
+    public ResponseEntity<List<ProductSummary>> getFrequentlyBoughtTogether(@PathVariable String id,
+            @RequestParam(required = false) Integer limit) {
+        // Counts move with every order, so these get a max-age but no validators
+        return cachePolicy.ok(productService.getFrequentlyBoughtTogether(id, limit));
+    }
+
     @GetMapping("/products/category/{category}")
-    public ResponseEntity<List<ProductDocument>> getProductsByCategory(@PathVariable String category) {
-        return ResponseEntity.ok(productService.getProductsByCategory(category));
+    public ResponseEntity<?> getProductsByCategory(WebRequest request, @PathVariable String category,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice) {
+        if (limit == null && cursor == null && sort == null && minPrice == null && maxPrice == null) {
+            return cachePolicy.respond(request, cachePolicy.products(),
+                    () -> productService.getProductSummaries(category, null));
+        }
+        return cachePolicy.respond(request, cachePolicy.products(),
+                () -> productService.getProductSummaryPage(category, null, sort,
+                        "desc".equalsIgnoreCase(direction), minPrice, maxPrice, limit, cursor));
     }
 
     @GetMapping("/products/brand/{brand}")
-    public ResponseEntity<List<ProductDocument>> getProductsByBrand(@PathVariable String brand) {
-        return ResponseEntity.ok(productService.getProductsByBrand(brand));
+    public ResponseEntity<?> getProductsByBrand(WebRequest request, @PathVariable String brand,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice) {
+        if (limit == null && cursor == null && sort == null && minPrice == null && maxPrice == null) {
+            return cachePolicy.respond(request, cachePolicy.products(),
+                    () -> productService.getProductSummaries(null, brand));
+        }
+        return cachePolicy.respond(request, cachePolicy.products(),
+                () -> productService.getProductSummaryPage(null, brand, sort,
+                        "desc".equalsIgnoreCase(direction), minPrice, maxPrice, limit, cursor));
     }
 
     @GetMapping("/products/search")
-    public ResponseEntity<List<ProductDocument>> searchProducts(@RequestParam String q) {
-        return ResponseEntity.ok(productService.searchProducts(q));
+    public ResponseEntity<List<ProductSummary>> searchProducts(WebRequest request, @RequestParam String q) {
+        return cachePolicy.respond(request, cachePolicy.products(), () -> productService.searchProducts(q));
+    }
+
+    @GetMapping("/products/facets")
+    public ResponseEntity<FacetSearchResponse<ProductSummary>> getFacetedProducts(WebRequest request,
+            @RequestParam(required = false) List<String> category,
+            @RequestParam(required = false) List<String> brand,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) List<String> rating,
+            @RequestParam(required = false) List<String> stock,
+            @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) Integer limit) {
+        Map<String, List<String>> filters = new HashMap<>();
+        filters.put(ProductFacetIndex.CATEGORY, category);
+        filters.put(ProductFacetIndex.BRAND, brand);
+        filters.put(ProductFacetIndex.PRICE, price);
+        filters.put(ProductFacetIndex.RATING, rating);
+        filters.put(ProductFacetIndex.STOCK, stock);
+        return cachePolicy.respond(request, cachePolicy.products(),
+                () -> productService.getFacetedProducts(filters, offset, limit));
+    }
+
+    @GetMapping("/products/autocomplete")
+    public ResponseEntity<List<SuggestionTrie.Suggestion>> autocomplete(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        // Suggestions are rebuilt shortly after catalog changes, so they get no validators
+        return cachePolicy.ok(productService.autocomplete(q, limit));
+    }
+
+    // ============== FITMENT ==============
+
+    @GetMapping("/fitment/models")
+    public ResponseEntity<List<FitmentIndex.VehicleModel>> getVehicleModels(WebRequest request,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) Integer year) {
+        return cachePolicy.respond(request, cachePolicy.brands(), () -> productService.getVehicleModels(brand, year));
+    }
+
+    @GetMapping("/fitment/products")
+    public ResponseEntity<Map<String, Object>> getFittingProducts(WebRequest request,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String model,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) String category) {
+        return cachePolicy.respond(request, cachePolicy.catalog(),
+                () -> productService.getFittingProducts(brand, model, year, category));
     }
 
     // ============== REVIEWS ==============
@@ -85,19 +239,40 @@ public class PublicApiController {
     // ============== CATEGORIES ==============
 
     @GetMapping("/categories")
-    public ResponseEntity<List<CategoryDocument>> getAllCategories() {
+    public ResponseEntity<List<CategoryDocument>> getAllCategories(WebRequest request) {
+        if (cachePolicy.checkNotModified(request, cachePolicy.categories())) {
+            return cachePolicy.notModified();
+        }
         try {
-            return ResponseEntity.ok(categoryRepository.findAllActive());
+            return cachePolicy.ok(categoryRepository.findAllActive());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    /**
+     * The whole category menu in one response: active categories nested under their
+     * parents, each with its own and its subtree's product count.
+     */
+    @GetMapping("/categories/tree")
+    public ResponseEntity<List<CategoryTree.Node>> getCategoryTree(WebRequest request) {
+        return cachePolicy.respond(request, cachePolicy.catalog(), () -> categoryTreeSnapshot().getRoots());
+    }
+
+    @GetMapping("/categories/slug/{slug}")
+    public ResponseEntity<CategoryTree.Node> getCategoryBySlug(WebRequest request, @PathVariable String slug) {
+        return cachePolicy.respond(request, cachePolicy.catalog(),
+                () -> categoryTreeSnapshot().findBySlug(slug).orElse(null));
+    }
+
     @GetMapping("/categories/{id}")
-    public ResponseEntity<CategoryDocument> getCategoryById(@PathVariable String id) {
+    public ResponseEntity<CategoryDocument> getCategoryById(WebRequest request, @PathVariable String id) {
+        if (cachePolicy.checkNotModified(request, cachePolicy.categories())) {
+            return cachePolicy.notModified();
+        }
         try {
             return categoryRepository.findById(id)
-                    .map(ResponseEntity::ok)
+                    .map(cachePolicy::ok)
                     .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
@@ -105,36 +280,94 @@ public class PublicApiController {
     }
 
     @GetMapping("/categories/{id}/subcategories")
-    public ResponseEntity<List<CategoryDocument>> getSubcategories(@PathVariable String id) {
+    public ResponseEntity<List<CategoryDocument>> getSubcategories(WebRequest request, @PathVariable String id) {
+        if (cachePolicy.checkNotModified(request, cachePolicy.categories())) {
+            return cachePolicy.notModified();
+        }
         try {
-            return ResponseEntity.ok(categoryRepository.findSubcategories(id));
+            return cachePolicy.ok(categoryRepository.findSubcategories(id));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    private CategoryTree.Snapshot categoryTreeSnapshot() {
+        CategoryTree.Snapshot snapshot = categoryTree.current();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Replicas still loading: two reads instead of one query per tree node
+        try {
+            return CategoryTree.build(categoryRepository.findAllActive(), productService.getAllProducts());
+        } catch (Exception e) {
+            throw new RuntimeException("Error building category tree", e);
+        }
+    }
+
     // ============== BRANDS (Motorcycle Brands) ==============
 
     @GetMapping("/brands")
-    public ResponseEntity<List<BrandDocument>> getAllBrands() {
+    public ResponseEntity<List<BrandDocument>> getAllBrands(WebRequest request) {
+        if (cachePolicy.checkNotModified(request, cachePolicy.brands())) {
+            return cachePolicy.notModified();
+        }
         try {
-            return ResponseEntity.ok(brandRepository.findAllActive());
+            return cachePolicy.ok(brandRepository.findAllActive());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
     @GetMapping("/brands/{id}")
-    public ResponseEntity<BrandDocument> getBrandById(@PathVariable String id) {
+    public ResponseEntity<BrandDocument> getBrandById(WebRequest request, @PathVariable String id) {
+        if (cachePolicy.checkNotModified(request, cachePolicy.brands())) {
+            return cachePolicy.notModified();
+        }
         try {
             return brandRepository.findById(id)
-                    .map(ResponseEntity::ok)
+                    .map(cachePolicy::ok)
                     .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    // ============== CATALOG ==============
+
+    @GetMapping("/catalog/status")
+    public ResponseEntity<Map<String, Object>> getCatalogStatus() {
+        return ResponseEntity.ok(productService.getCatalogStatus());
+    }
+
+    /**
+     * The whole active catalogue in one gzip-compressed JSON document. Clients should send
+     * the ETag back in If-None-Match; an unchanged catalogue answers 304 with no body.
+     */
+    @GetMapping("/catalog/snapshot")
+    public ResponseEntity<byte[]> getCatalogSnapshot(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogSnapshot.Artifact snapshot = productService.getCatalogSnapshot();
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        if (snapshot.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.etag(gzip))
+                    .cacheControl(cachePolicy.cacheControl())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(snapshot.etag(gzip))
+                .lastModified(snapshot.getGeneratedAt())
+                .cacheControl(cachePolicy.cacheControl())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzipped());
+        }
+        return response.body(snapshot.decompress());
+    }
+
     // ============== STATS ==============
 
     @GetMapping("/stats")
@@ -142,8 +375,8 @@ public class PublicApiController {
         try {
             return ResponseEntity.ok(Map.of(
                     "productCount", productService.getProductCount(),
-                    "categoryCount", categoryRepository.findAllActive().size(),
-                    "brandCount", brandRepository.findAllActive().size()));
+                    "categoryCount", categoryRepository.countActive(),
+                    "brandCount", brandRepository.countActive()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -1,12 +1,16 @@
 package com.example.spareparts.controller.api;
 
+import com.example.spareparts.dto.OrderIntakeStatus;
 import com.example.spareparts.model.firestore.*;
 import com.example.spareparts.service.firestore.*;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * User API endpoints - requires authentication.
@@ -18,14 +22,20 @@ public class UserApiController {
 
     private final UserFirestoreService userService;
     private final OrderFirestoreService orderService;
+    private final OrderIntakeService orderIntakeService;
     private final ReviewFirestoreService reviewService;
+    private final IdempotencyFirestoreService idempotencyService;
 
     public UserApiController(UserFirestoreService userService,
             OrderFirestoreService orderService,
-            ReviewFirestoreService reviewService) {
+            OrderIntakeService orderIntakeService,
+            ReviewFirestoreService reviewService,
+            IdempotencyFirestoreService idempotencyService) {
         this.userService = userService;
         this.orderService = orderService;
+        this.orderIntakeService = orderIntakeService;
         this.reviewService = reviewService;
+        this.idempotencyService = idempotencyService;
     }
 
     // ============== USER PROFILE ==============
@@ -68,19 +78,62 @@ public class UserApiController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Places the order. A retry with the same Idempotency-Key gets the first response
+     * back instead of placing the order again.
+     */
     @PostMapping("/orders")
-    public ResponseEntity<OrderDocument> createOrder(@RequestBody OrderDocument order) {
-        try {
-            OrderDocument createdOrder = orderService.createOrder(order);
-            return ResponseEntity.ok(createdOrder);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(null);
-        }
+    public ResponseEntity<OrderDocument> createOrder(@RequestBody OrderDocument order,
+            @RequestHeader(value = IdempotencyFirestoreService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, order.getUserId(), "createOrder", order,
+                OrderDocument.class, () -> {
+                    try {
+                        OrderDocument createdOrder = orderService.createOrder(order);
+                        return ResponseEntity.ok(createdOrder);
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        // Other failures propagate as 5xx, which releases the key for a retry
+                        return ResponseEntity.badRequest().body(null);
+                    }
+                });
+    }
+
+    /**
+     * Queues the order and answers 202 with a handle to poll; a full queue answers 503.
+     */
+    @PostMapping("/orders/intake")
+    public ResponseEntity<OrderIntakeStatus> submitOrder(@RequestBody OrderDocument order,
+            @RequestHeader(value = IdempotencyFirestoreService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, order.getUserId(), "submitOrder", order,
+                OrderIntakeStatus.class, () -> {
+                    OrderIntakeStatus status = orderIntakeService.submit(order);
+                    return ResponseEntity.status(HttpStatus.ACCEPTED)
+                            .location(URI.create("/api/v2/user/orders/intake/" + status.getHandle()
+                                    + "?userId=" + status.getUserId()))
+                            .body(status);
+                });
+    }
+
+    /**
+     * Status of a queued order. With waitMs the response is held until the order
+     * finishes or the wait runs out, so clients can long-poll instead of polling often.
+     */
+    @GetMapping("/orders/intake/{handle}")
+    public CompletableFuture<ResponseEntity<OrderIntakeStatus>> getOrderIntakeStatus(@PathVariable String handle,
+            @RequestParam String userId,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        return orderIntakeService.awaitStatus(handle, userId, waitMs)
+                .thenApply(status -> status.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build()));
     }
 
     @PostMapping("/orders/{orderId}/cancel")
     public ResponseEntity<Void> cancelOrder(@PathVariable String orderId,
-            @RequestParam String userId) {
+            @RequestParam String userId,
+            @RequestHeader(value = IdempotencyFirestoreService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, userId, "cancelOrder", orderId, Void.class,
+                () -> cancelOrder(orderId, userId));
+    }
+
+    private ResponseEntity<Void> cancelOrder(String orderId, String userId) {
         try {
             // Verify order belongs to user
             OrderDocument order = orderService.getOrderById(orderId).orElse(null);
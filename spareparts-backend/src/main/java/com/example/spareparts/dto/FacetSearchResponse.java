@@ -0,0 +1,44 @@
+package com.example.spareparts.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a faceted catalog query: one page of matching items, the total match
+ * count, and per-facet value counts (facet -> value -> count).
+ * A facet's counts ignore that facet's own filter, so shoppers can see how many
+ * items every alternative value would give them.
+ */
+public class FacetSearchResponse<T> {
+    private List<T> items;
+    private int total;
+    private int offset;
+    private int limit;
+    private Map<String, Map<String, Integer>> facets;
+
+    public FacetSearchResponse() {}
+
+    public FacetSearchResponse(List<T> items, int total, int offset, int limit,
+            Map<String, Map<String, Integer>> facets) {
+        this.items = items;
+        this.total = total;
+        this.offset = offset;
+        this.limit = limit;
+        this.facets = facets;
+    }
+
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+
+    public int getOffset() { return offset; }
+    public void setOffset(int offset) { this.offset = offset; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+
+    public Map<String, Map<String, Integer>> getFacets() { return facets; }
+    public void setFacets(Map<String, Map<String, Integer>> facets) { this.facets = facets; }
+}
@@ -0,0 +1,48 @@
+package com.example.spareparts.dto;
+
+/**
+ * Progress of an order accepted for asynchronous placement, looked up by its handle.
+ * Status is QUEUED, PROCESSING, COMPLETED (orderId set) or FAILED (error set).
+ * Instances are immutable snapshots; each transition publishes a new one.
+ */
+public class OrderIntakeStatus {
+    public static final String QUEUED = "QUEUED";
+    public static final String PROCESSING = "PROCESSING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private String handle;
+    private String userId;
+    private String status;
+    private String orderId;
+    private String error;
+    private long submittedAt;
+    private long completedAt;
+
+    private OrderIntakeStatus() {} // For Jackson, e.g. replayed idempotent responses
+
+    public OrderIntakeStatus(String handle, String userId, String status, String orderId, String error,
+            long submittedAt, long completedAt) {
+        this.handle = handle;
+        this.userId = userId;
+        this.status = status;
+        this.orderId = orderId;
+        this.error = error;
+        this.submittedAt = submittedAt;
+        this.completedAt = completedAt;
+    }
+
+    public OrderIntakeStatus withStatus(String status, String orderId, String error, long completedAt) {
+        return new OrderIntakeStatus(handle, userId, status, orderId, error, submittedAt, completedAt);
+    }
+
+    public boolean isFinished() { return COMPLETED.equals(status) || FAILED.equals(status); }
+
+    public String getHandle() { return handle; }
+    public String getUserId() { return userId; }
+    public String getStatus() { return status; }
+    public String getOrderId() { return orderId; }
+    public String getError() { return error; }
+    public long getSubmittedAt() { return submittedAt; }
+    public long getCompletedAt() { return completedAt; }
+}
@@ -0,0 +1,28 @@
+package com.example.spareparts.dto;
+
+/**
+ * One order of a bulk fulfilment update: its new status, its tracking number, or both.
+ * A tracking number without a status marks the order SHIPPED, like the single update.
+ */
+public class OrderStatusUpdate {
+    private String orderId;
+    private String status;
+    private String trackingNumber;
+
+    public OrderStatusUpdate() {}
+
+    public OrderStatusUpdate(String orderId, String status, String trackingNumber) {
+        this.orderId = orderId;
+        this.status = status;
+        this.trackingNumber = trackingNumber;
+    }
+
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getTrackingNumber() { return trackingNumber; }
+    public void setTrackingNumber(String trackingNumber) { this.trackingNumber = trackingNumber; }
+}
@@ -0,0 +1,30 @@
+package com.example.spareparts.dto;
+
+/**
+ * Outcome of one order in a bulk update; error says why it wasn't applied.
+ */
+public class OrderUpdateResult {
+    private String orderId;
+    private boolean success;
+    private String error;
+
+    public OrderUpdateResult() {}
+
+    public OrderUpdateResult(String orderId, boolean success, String error) {
+        this.orderId = orderId;
+        this.success = success;
+        this.error = error;
+    }
+
+    public static OrderUpdateResult applied(String orderId) { return new OrderUpdateResult(orderId, true, null); }
+    public static OrderUpdateResult failed(String orderId, String error) { return new OrderUpdateResult(orderId, false, error); }
+
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
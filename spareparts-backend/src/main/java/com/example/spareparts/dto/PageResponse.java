@@ -0,0 +1,35 @@
+package com.example.spareparts.dto;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated listing.
+ * Pass {@code nextCursor} back as the {@code cursor} parameter to fetch the following page.
+ */
+public class PageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int limit;
+
+    public PageResponse() {}
+
+    public PageResponse(List<T> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+        this.limit = limit;
+    }
+
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+}
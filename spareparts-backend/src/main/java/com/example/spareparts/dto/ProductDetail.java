@@ -0,0 +1,46 @@
+package com.example.spareparts.dto;
+
+import com.example.spareparts.model.firestore.BrandDocument;
+import com.example.spareparts.model.firestore.CategoryDocument;
+import com.example.spareparts.model.firestore.ProductDocument;
+import com.example.spareparts.model.firestore.ReviewDocument;
+
+import java.util.List;
+
+/**
+ * Everything a product page shows, in one response: the product, its newest reviews,
+ * the rating summary, and its brand and category (null if they can't be resolved).
+ */
+public class ProductDetail {
+    private ProductDocument product;
+    private List<ReviewDocument> reviews;
+    private RatingSummary rating;
+    private BrandDocument brand;
+    private CategoryDocument category;
+
+    public ProductDetail() {}
+
+    public ProductDetail(ProductDocument product, List<ReviewDocument> reviews, RatingSummary rating,
+            BrandDocument brand, CategoryDocument category) {
+        this.product = product;
+        this.reviews = reviews;
+        this.rating = rating;
+        this.brand = brand;
+        this.category = category;
+    }
+
+    public ProductDocument getProduct() { return product; }
+    public void setProduct(ProductDocument product) { this.product = product; }
+
+    public List<ReviewDocument> getReviews() { return reviews; }
+    public void setReviews(List<ReviewDocument> reviews) { this.reviews = reviews; }
+
+    public RatingSummary getRating() { return rating; }
+    public void setRating(RatingSummary rating) { this.rating = rating; }
+
+    public BrandDocument getBrand() { return brand; }
+    public void setBrand(BrandDocument brand) { this.brand = brand; }
+
+    public CategoryDocument getCategory() { return category; }
+    public void setCategory(CategoryDocument category) { this.category = category; }
+}
@@ -0,0 +1,107 @@
+package com.example.spareparts.dto;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+
+import java.util.List;
+
+/**
+ * What a catalog grid shows for a product. Served by the public list endpoints in
+ * place of the full document; the description is cut to a short excerpt, and
+ * specifications, compatible models and the remaining images are only returned by
+ * the detail endpoint.
+ */
+public class ProductSummary {
+
+    /**
+     * Firestore fields read for a summary (the field mask for {@code select}).
+     */
+    public static final List<String> FIELDS = List.of(
+            "name", "description", "sku", "category", "brand", "price", "stock", "averageRating", "reviewCount",
+            "images");
+
+    // Longest description excerpt, enough for the two lines a card shows
+    static final int DESCRIPTION_EXCERPT_LENGTH = 160;
+
+    private String id;
+    private String name;
+    private String description;
+    private String sku;
+    private String category;
+    private String brand;
+    private double price;
+    private int stock;
+    private double averageRating;
+    private int reviewCount;
+    private String thumbnail;
+
+    public ProductSummary() {}
+
+    public static ProductSummary from(ProductDocument product) {
+        ProductSummary summary = new ProductSummary();
+        summary.id = product.getId();
+        summary.name = product.getName();
+        summary.description = excerpt(product.getDescription());
+        summary.sku = product.getSku();
+        summary.category = product.getCategory();
+        summary.brand = product.getBrand();
+        summary.price = product.getPrice();
+        summary.stock = product.getStock();
+        summary.averageRating = product.getAverageRating();
+        summary.reviewCount = product.getReviewCount();
+        List<String> images = product.getImages();
+        summary.thumbnail = images != null && !images.isEmpty() ? images.get(0) : null;
+        return summary;
+    }
+
+    /**
+     * The description with whitespace collapsed, cut at a word boundary with an ellipsis
+     * when longer than {@value #DESCRIPTION_EXCERPT_LENGTH} characters.
+     */
+    static String excerpt(String description) {
+        if (description == null) {
+            return null;
+        }
+        String text = description.trim().replaceAll("\\s+", " ");
+        if (text.length() <= DESCRIPTION_EXCERPT_LENGTH) {
+            return text.isEmpty() ? null : text;
+        }
+        int cut = text.lastIndexOf(' ', DESCRIPTION_EXCERPT_LENGTH - 1);
+        if (cut <= 0) {
+            cut = DESCRIPTION_EXCERPT_LENGTH - 1;
+        }
+        return text.substring(0, cut).stripTrailing() + "\u2026";
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public String getSku() { return sku; }
+    public void setSku(String sku) { this.sku = sku; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public String getBrand() { return brand; }
+    public void setBrand(String brand) { this.brand = brand; }
+
+    public double getPrice() { return price; }
+    public void setPrice(double price) { this.price = price; }
+
+    public int getStock() { return stock; }
+    public void setStock(int stock) { this.stock = stock; }
+
+    public double getAverageRating() { return averageRating; }
+    public void setAverageRating(double averageRating) { this.averageRating = averageRating; }
+
+    public int getReviewCount() { return reviewCount; }
+    public void setReviewCount(int reviewCount) { this.reviewCount = reviewCount; }
+
+    public String getThumbnail() { return thumbnail; }
+    public void setThumbnail(String thumbnail) { this.thumbnail = thumbnail; }
+}
@@ -0,0 +1,30 @@
+package com.example.spareparts.dto;
+
+import java.util.Map;
+
+/**
+ * Review statistics of one product: how many active reviews it has, their mean
+ * rating and how many reviews gave each star rating (1-5).
+ */
+public class RatingSummary {
+    private long reviewCount;
+    private double averageRating;
+    private Map<Integer, Long> distribution;
+
+    public RatingSummary() {}
+
+    public RatingSummary(long reviewCount, double averageRating, Map<Integer, Long> distribution) {
+        this.reviewCount = reviewCount;
+        this.averageRating = averageRating;
+        this.distribution = distribution;
+    }
+
+    public long getReviewCount() { return reviewCount; }
+    public void setReviewCount(long reviewCount) { this.reviewCount = reviewCount; }
+
+    public double getAverageRating() { return averageRating; }
+    public void setAverageRating(double averageRating) { this.averageRating = averageRating; }
+
+    public Map<Integer, Long> getDistribution() { return distribution; }
+    public void setDistribution(Map<Integer, Long> distribution) { this.distribution = distribution; }
+}
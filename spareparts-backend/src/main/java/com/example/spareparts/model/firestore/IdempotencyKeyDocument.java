@@ -0,0 +1,102 @@
+package com.example.spareparts.model.firestore;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.annotation.DocumentId;
+
+/**
+ * Idempotency key document for Firestore.
+ * Records the first request made with a key and, once it finished, the response
+ * to replay for retries of it.
+ */
+public class IdempotencyKeyDocument {
+
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    @DocumentId
+    private String id;
+    private String scope; // Who may use the key, e.g. the user id
+    private String fingerprint; // Hash of the operation and request body
+    private String status; // IN_PROGRESS, COMPLETED
+    private int responseStatus;
+    private String responseBody; // JSON
+    private String responseLocation;
+    private long createdAt;
+    private Timestamp expireAt; // A Timestamp so a Firestore TTL policy can delete expired keys
+
+    public IdempotencyKeyDocument() {
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getResponseStatus() {
+        return responseStatus;
+    }
+
+    public void setResponseStatus(int responseStatus) {
+        this.responseStatus = responseStatus;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public void setResponseBody(String responseBody) {
+        this.responseBody = responseBody;
+    }
+
+    public String getResponseLocation() {
+        return responseLocation;
+    }
+
+    public void setResponseLocation(String responseLocation) {
+        this.responseLocation = responseLocation;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Timestamp getExpireAt() {
+        return expireAt;
+    }
+
+    public void setExpireAt(Timestamp expireAt) {
+        this.expireAt = expireAt;
+    }
+}
@@ -16,6 +16,7 @@ public class ProductDocument {
     private String description;
     private double price;
     private int stock;
+    private int stockShards; // 0: stock lives in the stock field; N: split over N shard documents
     private int reorderLevel;
     private String category;
     private String brand; // Motorcycle brand compatibility
@@ -75,6 +76,14 @@ public class ProductDocument {
         this.stock = stock;
     }
 
+    public int getStockShards() {
+        return stockShards;
+    }
+
+    public void setStockShards(int stockShards) {
+        this.stockShards = stockShards;
+    }
+
     public int getReorderLevel() {
         return reorderLevel;
     }
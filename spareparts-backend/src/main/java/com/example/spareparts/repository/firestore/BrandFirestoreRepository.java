@@ -2,7 +2,10 @@ package com.example.spareparts.repository.firestore;
 
 import com.example.spareparts.model.firestore.BrandDocument;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.firestore.*;
+import com.google.cloud.firestore.EventListener;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
@@ -17,15 +20,24 @@ public class BrandFirestoreRepository {
 
     private static final String COLLECTION_NAME = "brands";
     private final Firestore firestore;
+    private final CounterFirestoreRepository counterRepository;
 
-    public BrandFirestoreRepository(Firestore firestore) {
+    public BrandFirestoreRepository(Firestore firestore, CounterFirestoreRepository counterRepository) {
         this.firestore = firestore;
+        this.counterRepository = counterRepository;
     }
 
     private CollectionReference getCollection() {
         return firestore.collection(COLLECTION_NAME);
     }
 
+    /**
+     * Streams every change to the brands collection to the given listener.
+     */
+    public ListenerRegistration listen(EventListener<QuerySnapshot> listener) {
+        return getCollection().addSnapshotListener(listener);
+    }
+
     public List<BrandDocument> findAll() throws ExecutionException, InterruptedException {
         ApiFuture<QuerySnapshot> future = getCollection()
                 .orderBy("name")
@@ -58,15 +70,25 @@ public class BrandFirestoreRepository {
     }
 
     public Optional<BrandDocument> findByName(String name) throws ExecutionException, InterruptedException {
+        return findByNameAsync(name).get();
+    }
+
+    public ApiFuture<Optional<BrandDocument>> findByNameAsync(String name) {
         ApiFuture<QuerySnapshot> future = getCollection()
                 .whereEqualTo("name", name)
                 .limit(1)
                 .get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        if (!documents.isEmpty()) {
-            return Optional.of(documents.get(0).toObject(BrandDocument.class));
-        }
-        return Optional.empty();
+        return ApiFutures.transform(future,
+                snapshot -> snapshot.isEmpty() ? Optional.<BrandDocument>empty()
+                        : Optional.of(snapshot.getDocuments().get(0).toObject(BrandDocument.class)),
+                MoreExecutors.directExecutor());
+    }
+
+    public long countActive() throws ExecutionException, InterruptedException {
+        return getCollection()
+                .whereEqualTo("active", true)
+                .count()
+                .get().get().getCount();
     }
 
     public BrandDocument save(BrandDocument brand) throws ExecutionException, InterruptedException {
@@ -77,11 +99,22 @@ public class BrandFirestoreRepository {
             brand.setActive(true);
             DocumentReference docRef = getCollection().document();
             brand.setId(docRef.getId());
-            docRef.set(brand).get();
+            WriteBatch batch = firestore.batch();
+            batch.set(docRef, brand);
+            counterRepository.increment(batch, COLLECTION_NAME, 1);
+            batch.commit().get();
         } else {
-            // Update existing document
+            // Update existing document; an id that doesn't exist yet creates it, so count it then
             brand.setUpdatedAt(System.currentTimeMillis());
-            getCollection().document(brand.getId()).set(brand).get();
+            DocumentReference docRef = getCollection().document(brand.getId());
+            firestore.runTransaction(transaction -> {
+                boolean exists = transaction.get(docRef).get().exists();
+                transaction.set(docRef, brand);
+                if (!exists) {
+                    counterRepository.increment(transaction, COLLECTION_NAME, 1);
+                }
+                return null;
+            }).get();
         }
         return brand;
     }
@@ -91,6 +124,19 @@ public class BrandFirestoreRepository {
     }
 
     public long count() throws ExecutionException, InterruptedException {
-        return getCollection().get().get().size();
+        Optional<Long> counted = counterRepository.read(COLLECTION_NAME);
+        if (counted.isPresent()) {
+            return counted.get();
+        }
+        return recount();
+    }
+
+    /**
+     * Counts the collection with a server-side aggregation query and re-seeds its counter.
+     */
+    public long recount() throws ExecutionException, InterruptedException {
+        long total = getCollection().count().get().get().getCount();
+        counterRepository.reset(COLLECTION_NAME, total);
+        return total;
     }
 }
@@ -2,7 +2,10 @@ package com.example.spareparts.repository.firestore;
 
 import com.example.spareparts.model.firestore.CategoryDocument;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.firestore.*;
+import com.google.cloud.firestore.EventListener;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
@@ -26,6 +29,13 @@ public class CategoryFirestoreRepository {
         return firestore.collection(COLLECTION_NAME);
     }
 
+    /**
+     * Streams every change to the categories collection to the given listener.
+     */
+    public ListenerRegistration listen(EventListener<QuerySnapshot> listener) {
+        return getCollection().addSnapshotListener(listener);
+    }
+
     public List<CategoryDocument> findAll() throws ExecutionException, InterruptedException {
         ApiFuture<QuerySnapshot> future = getCollection()
                 .orderBy("displayOrder")
@@ -82,15 +92,25 @@ public class CategoryFirestoreRepository {
     }
 
     public Optional<CategoryDocument> findBySlug(String slug) throws ExecutionException, InterruptedException {
+        return findBySlugAsync(slug).get();
+    }
+
+    public ApiFuture<Optional<CategoryDocument>> findBySlugAsync(String slug) {
         ApiFuture<QuerySnapshot> future = getCollection()
                 .whereEqualTo("slug", slug)
                 .limit(1)
                 .get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        if (!documents.isEmpty()) {
-            return Optional.of(documents.get(0).toObject(CategoryDocument.class));
-        }
-        return Optional.empty();
+        return ApiFutures.transform(future,
+                snapshot -> snapshot.isEmpty() ? Optional.<CategoryDocument>empty()
+                        : Optional.of(snapshot.getDocuments().get(0).toObject(CategoryDocument.class)),
+                MoreExecutors.directExecutor());
+    }
+
+    public long countActive() throws ExecutionException, InterruptedException {
+        return getCollection()
+                .whereEqualTo("active", true)
+                .count()
+                .get().get().getCount();
     }
 
     public CategoryDocument save(CategoryDocument category) throws ExecutionException, InterruptedException {
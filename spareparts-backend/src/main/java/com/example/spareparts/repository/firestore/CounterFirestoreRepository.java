@@ -0,0 +1,85 @@
+package com.example.spareparts.repository.firestore;
+
+import com.google.cloud.firestore.*;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Firestore repository for sharded document counters.
+ * Each counter lives at counters/{name} with its value spread over
+ * counters/{name}/shards/{0..SHARD_COUNT-1}, so concurrent creates don't contend
+ * on a single document and reading a count costs SHARD_COUNT reads.
+ */
+@Repository
+public class CounterFirestoreRepository {
+
+    private static final String COLLECTION_NAME = "counters";
+    private static final String SHARDS = "shards";
+    private static final int SHARD_COUNT = 10;
+    private final Firestore firestore;
+
+    public CounterFirestoreRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    private DocumentReference getCounter(String name) {
+        return firestore.collection(COLLECTION_NAME).document(name);
+    }
+
+    /**
+     * Adds an increment of a random shard to the batch, so the counter changes
+     * atomically with the document write it accounts for.
+     */
+    public void increment(WriteBatch batch, String name, long delta) {
+        batch.set(randomShard(name), Map.of("count", FieldValue.increment(delta)), SetOptions.merge());
+    }
+
+    /**
+     * Same as {@link #increment(WriteBatch, String, long)}, inside a transaction.
+     */
+    public void increment(Transaction transaction, String name, long delta) {
+        transaction.set(randomShard(name), Map.of("count", FieldValue.increment(delta)), SetOptions.merge());
+    }
+
+    private DocumentReference randomShard(String name) {
+        return getCounter(name).collection(SHARDS)
+                .document(String.valueOf(ThreadLocalRandom.current().nextInt(SHARD_COUNT)));
+    }
+
+    /**
+     * Sums the shards of an initialized counter; empty if the counter was never initialized.
+     */
+    public Optional<Long> read(String name) throws ExecutionException, InterruptedException {
+        DocumentSnapshot counter = getCounter(name).get().get();
+        if (!counter.exists() || !Boolean.TRUE.equals(counter.getBoolean("initialized"))) {
+            return Optional.empty();
+        }
+        long total = 0;
+        for (QueryDocumentSnapshot shard : getCounter(name).collection(SHARDS).get().get().getDocuments()) {
+            Long count = shard.getLong("count");
+            total += count != null ? count : 0;
+        }
+        return Optional.of(total);
+    }
+
+    /**
+     * Overwrites the counter with an exact value, e.g. from an aggregation query.
+     * Writes that land between the aggregation and this reset are lost, so this is
+     * meant for one-off initialization and admin recounts rather than hot paths.
+     */
+    public void reset(String name, long value) throws ExecutionException, InterruptedException {
+        WriteBatch batch = firestore.batch();
+        CollectionReference shards = getCounter(name).collection(SHARDS);
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            batch.set(shards.document(String.valueOf(i)), Map.of("count", i == 0 ? value : 0L));
+        }
+        batch.set(getCounter(name), Map.of(
+                "initialized", true,
+                "shards", SHARD_COUNT,
+                "updatedAt", System.currentTimeMillis()));
+        batch.commit().get();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.spareparts.repository.firestore;
+
+import com.example.spareparts.model.firestore.IdempotencyKeyDocument;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.*;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Firestore repository for idempotency keys.
+ */
+@Repository
+public class IdempotencyKeyFirestoreRepository {
+
+    private static final String COLLECTION_NAME = "idempotencyKeys";
+    private final Firestore firestore;
+
+    public IdempotencyKeyFirestoreRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    private CollectionReference getCollection() {
+        return firestore.collection(COLLECTION_NAME);
+    }
+
+    /**
+     * Stores the claim unless a live record exists under its id, in one transaction so
+     * two concurrent requests with the same key can't both claim it. Expired records
+     * (not yet removed by the TTL policy) are overwritten.
+     *
+     * @return the existing record, or empty if the claim was stored
+     */
+    public Optional<IdempotencyKeyDocument> claim(IdempotencyKeyDocument claim)
+            throws ExecutionException, InterruptedException {
+        DocumentReference docRef = getCollection().document(claim.getId());
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(docRef).get();
+            if (existing.exists()) {
+                IdempotencyKeyDocument record = existing.toObject(IdempotencyKeyDocument.class);
+                if (record.getExpireAt() != null && record.getExpireAt().compareTo(Timestamp.now()) > 0) {
+                    return Optional.of(record);
+                }
+            }
+            transaction.set(docRef, claim);
+            return Optional.<IdempotencyKeyDocument>empty();
+        }).get();
+    }
+
+    /**
+     * Stores the response and extends the record from the claim's lease to its full lifetime.
+     */
+    public void complete(String id, int responseStatus, String responseBody, String responseLocation,
+            Timestamp expireAt) throws ExecutionException, InterruptedException {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("status", IdempotencyKeyDocument.COMPLETED);
+        updates.put("responseStatus", responseStatus);
+        updates.put("responseBody", responseBody);
+        updates.put("responseLocation", responseLocation);
+        updates.put("expireAt", expireAt);
+        getCollection().document(id).update(updates).get();
+    }
+
+    public void delete(String id) throws ExecutionException, InterruptedException {
+        getCollection().document(id).delete().get();
+    }
+}
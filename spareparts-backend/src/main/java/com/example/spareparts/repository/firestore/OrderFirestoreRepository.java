@@ -2,11 +2,14 @@ package com.example.spareparts.repository.firestore;
 
 import com.example.spareparts.model.firestore.OrderDocument;
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import io.grpc.Status;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -16,10 +19,19 @@ import java.util.stream.Collectors;
 public class OrderFirestoreRepository {
 
     private static final String COLLECTION_NAME = "orders";
+    // Attempts of the order placement transaction before contention is reported as a failure
+    private static final int PLACE_ORDER_ATTEMPTS = 5;
     private final Firestore firestore;
+    private final CounterFirestoreRepository counterRepository;
+    private final ProductFirestoreRepository productRepository;
+    private final StockShardFirestoreRepository stockShardRepository;
 
-    public OrderFirestoreRepository(Firestore firestore) {
+    public OrderFirestoreRepository(Firestore firestore, CounterFirestoreRepository counterRepository,
+            ProductFirestoreRepository productRepository, StockShardFirestoreRepository stockShardRepository) {
         this.firestore = firestore;
+        this.counterRepository = counterRepository;
+        this.productRepository = productRepository;
+        this.stockShardRepository = stockShardRepository;
     }
 
     private CollectionReference getCollection() {
@@ -70,15 +82,196 @@ public class OrderFirestoreRepository {
             }
             DocumentReference docRef = getCollection().document();
             order.setId(docRef.getId());
-            docRef.set(order).get();
+            WriteBatch batch = firestore.batch();
+            batch.set(docRef, order);
+            counterRepository.increment(batch, COLLECTION_NAME, 1);
+            batch.commit().get();
         } else {
-            // Update existing document
+            // Update existing document; an id that doesn't exist yet creates it, so count it then
             order.setUpdatedAt(System.currentTimeMillis());
-            getCollection().document(order.getId()).set(order).get();
+            DocumentReference docRef = getCollection().document(order.getId());
+            firestore.runTransaction(transaction -> {
+                boolean exists = transaction.get(docRef).get().exists();
+                transaction.set(docRef, order);
+                if (!exists) {
+                    counterRepository.increment(transaction, COLLECTION_NAME, 1);
+                }
+                return null;
+            }).get();
         }
         return order;
     }
 
+    /**
+     * Places a group of orders in one transaction: the products of all of them are read
+     * with a single getAll, the orders are checked against stock in list order, and the
+     * stock decrements, accepted orders and counter increment commit together. An order
+     * that would overdraw a product is rejected on its own without failing the others.
+     * Concurrent checkouts of the same product are serialized by Firestore, so stock can't
+     * go negative; a transaction that loses is retried up to {@value #PLACE_ORDER_ATTEMPTS} times.
+     * Products with sharded stock are checked and decremented on their shards alone. Their
+     * own document is read outside the transaction, since roll-ups keep rewriting its stock
+     * field, so neither concurrent checkouts nor roll-ups of a hot item contend on it.
+     * A reshard that lands in between shows up as a missing shard, and the group is retried.
+     * <p>
+     * Each product and shard is written once per group however many orders it is in, so
+     * the writes of a group are at most one per order, product and shard touched, plus one.
+     */
+    public void placeOrders(List<Placement> placements) throws ExecutionException, InterruptedException {
+        Map<Placement, DocumentReference> orderRefs = new LinkedHashMap<>();
+        Set<String> productIds = new LinkedHashSet<>();
+        for (Placement placement : placements) {
+            orderRefs.put(placement, getCollection().document());
+            productIds.addAll(placement.quantities.keySet());
+        }
+        DocumentReference[] productRefs = productIds.stream()
+                .map(productRepository::reference)
+                .toArray(DocumentReference[]::new);
+        TransactionOptions options = TransactionOptions.createReadWriteOptionsBuilder()
+                .setNumberOfAttempts(PLACE_ORDER_ATTEMPTS)
+                .build();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                placeOnce(placements, orderRefs, productRefs, options);
+                return;
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof StockShardFirestoreRepository.ShardsMovedException)
+                        || attempt >= PLACE_ORDER_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void placeOnce(List<Placement> placements, Map<Placement, DocumentReference> orderRefs,
+            DocumentReference[] productRefs, TransactionOptions options)
+            throws ExecutionException, InterruptedException {
+        firestore.runTransaction(transaction -> {
+            // Only products that aren't sharded are read in the transaction; for sharded ones
+            // the shard count comes from a plain read, and allocate() notices if it went stale
+            Map<String, DocumentSnapshot> products = new HashMap<>();
+            List<DocumentReference> unsharded = new ArrayList<>();
+            for (DocumentSnapshot product : firestore.getAll(productRefs).get()) {
+                if (StockShardFirestoreRepository.shardCount(product) > 0) {
+                    products.put(product.getId(), product);
+                } else {
+                    unsharded.add(product.getReference());
+                }
+            }
+            if (!unsharded.isEmpty()) {
+                for (DocumentSnapshot product : transaction.getAll(unsharded.toArray(new DocumentReference[0])).get()) {
+                    products.put(product.getId(), product);
+                }
+            }
+            Map<String, Long> stockLeft = new LinkedHashMap<>();
+            Map<DocumentReference, Long> shardStock = new HashMap<>();
+            Set<DocumentReference> shardsTouched = new LinkedHashSet<>();
+            List<Placement> accepted = new ArrayList<>();
+
+            for (Placement placement : placements) {
+                placement.rejection = null;
+                Map<String, Long> stockAfter = new HashMap<>();
+                Map<DocumentReference, Long> shardsAfter = new HashMap<>();
+                for (Map.Entry<String, Integer> item : placement.quantities.entrySet()) {
+                    DocumentSnapshot product = products.get(item.getKey());
+                    if (product == null || !product.exists()) {
+                        placement.rejection = "Product not found: " + item.getKey();
+                        break;
+                    }
+                    int shards = StockShardFirestoreRepository.shardCount(product);
+                    if (shards > 0) {
+                        Map<DocumentReference, Long> plan = stockShardRepository.allocate(transaction,
+                                item.getKey(), shards, item.getValue(), shardStock);
+                        if (plan == null) {
+                            placement.rejection = "Insufficient stock for: " + product.getString("name");
+                            break;
+                        }
+                        shardsAfter.putAll(plan);
+                        continue;
+                    }
+                    long left = stockLeft.computeIfAbsent(item.getKey(), id -> {
+                        Long stock = product.getLong("stock");
+                        return stock != null ? stock : 0;
+                    }) - item.getValue();
+                    if (left < 0) {
+                        placement.rejection = "Insufficient stock for: " + product.getString("name");
+                        break;
+                    }
+                    stockAfter.put(item.getKey(), left);
+                }
+                if (placement.rejection == null) {
+                    stockLeft.putAll(stockAfter);
+                    shardStock.putAll(shardsAfter);
+                    shardsTouched.addAll(shardsAfter.keySet());
+                    accepted.add(placement);
+                }
+            }
+            if (accepted.isEmpty()) {
+                return null;
+            }
+
+            long now = System.currentTimeMillis();
+            Set<String> productsTouched = new HashSet<>();
+            for (Placement placement : accepted) {
+                for (String productId : placement.quantities.keySet()) {
+                    if (stockLeft.containsKey(productId) && productsTouched.add(productId)) {
+                        transaction.update(productRepository.reference(productId),
+                                "stock", stockLeft.get(productId), "updatedAt", now);
+                    }
+                }
+            }
+            stockShardRepository.apply(transaction, shardsTouched.stream()
+                    .collect(Collectors.toMap(ref -> ref, shardStock::get)));
+            for (Placement placement : accepted) {
+                OrderDocument order = placement.order;
+                DocumentReference orderRef = orderRefs.get(placement);
+                order.setId(orderRef.getId());
+                order.setCreatedAt(now);
+                order.setUpdatedAt(now);
+                if (order.getStatus() == null) {
+                    order.setStatus("PENDING");
+                }
+                if (order.getPaymentStatus() == null) {
+                    order.setPaymentStatus("PENDING");
+                }
+                transaction.set(orderRef, order);
+            }
+            counterRepository.increment(transaction, COLLECTION_NAME, accepted.size());
+            return null;
+        }, options).get();
+    }
+
+    /**
+     * One order of a {@link #placeOrders} group. After the call, either the order has its
+     * id or the placement says why it was rejected.
+     */
+    public static class Placement {
+        private final OrderDocument order;
+        private final Map<String, Integer> quantities;
+        private String rejection;
+
+        /**
+         * @param quantities product id -> total quantity ordered
+         */
+        public Placement(OrderDocument order, Map<String, Integer> quantities) {
+            this.order = order;
+            this.quantities = quantities;
+        }
+
+        public OrderDocument getOrder() {
+            return order;
+        }
+
+        public Map<String, Integer> getQuantities() {
+            return quantities;
+        }
+
+        public String getRejection() {
+            return rejection;
+        }
+    }
+
     public void updateStatus(String orderId, String status) throws ExecutionException, InterruptedException {
         getCollection().document(orderId).update(
                 "status", status,
@@ -92,6 +285,86 @@ public class OrderFirestoreRepository {
                 "updatedAt", System.currentTimeMillis()).get();
     }
 
+    /**
+     * Current status of each existing order, read together, with the version to make an
+     * update conditional on. Unknown ids are left out.
+     */
+    public Map<String, StatusVersion> findStatusVersions(Collection<String> orderIds)
+            throws ExecutionException, InterruptedException {
+        DocumentReference[] refs = orderIds.stream().map(getCollection()::document).toArray(DocumentReference[]::new);
+        Map<String, StatusVersion> versions = new HashMap<>();
+        for (DocumentSnapshot order : firestore.getAll(refs).get()) {
+            if (order.exists()) {
+                versions.put(order.getId(), new StatusVersion(order.getString("status"), order.getUpdateTime()));
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * An order's status as read by {@link #findStatusVersions}, with the document's update time.
+     */
+    public static class StatusVersion {
+        private final String status;
+        private final Timestamp updateTime;
+
+        public StatusVersion(String status, Timestamp updateTime) {
+            this.status = status;
+            this.updateTime = updateTime;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public Timestamp getUpdateTime() {
+            return updateTime;
+        }
+    }
+
+    /**
+     * Applies field updates to many orders through a BulkWriter, which batches the writes,
+     * sends the batches in parallel, paces them and retries contention on its own.
+     * Each update succeeds or fails on its own, and only if the order is still at the
+     * version it was read at, so a status checked against that version can't have moved.
+     *
+     * @param updates  order id -> fields to set (updatedAt is added)
+     * @param versions order id -> version from {@link #findStatusVersions}
+     * @return order id -> reason, for the updates that failed
+     */
+    public Map<String, String> bulkUpdate(Map<String, Map<String, Object>> updates,
+            Map<String, StatusVersion> versions) throws ExecutionException, InterruptedException {
+        long now = System.currentTimeMillis();
+        Map<String, ApiFuture<WriteResult>> writes = new LinkedHashMap<>();
+        try (BulkWriter writer = firestore.bulkWriter()) {
+            for (Map.Entry<String, Map<String, Object>> update : updates.entrySet()) {
+                Map<String, Object> fields = new HashMap<>(update.getValue());
+                fields.put("updatedAt", now);
+                Precondition precondition = Precondition.updatedAt(versions.get(update.getKey()).getUpdateTime());
+                writes.put(update.getKey(),
+                        writer.update(getCollection().document(update.getKey()), fields, precondition));
+            }
+        }
+
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, ApiFuture<WriteResult>> write : writes.entrySet()) {
+            try {
+                write.getValue().get();
+            } catch (ExecutionException e) {
+                Status.Code code = e.getCause() instanceof BulkWriterException
+                        ? ((BulkWriterException) e.getCause()).getStatus().getCode() : null;
+                if (code == Status.Code.NOT_FOUND) {
+                    failures.put(write.getKey(), "Order not found");
+                } else if (code == Status.Code.FAILED_PRECONDITION) {
+                    failures.put(write.getKey(), "Order changed during the update, try again");
+                } else {
+                    failures.put(write.getKey(), e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                }
+            }
+        }
+        return failures;
+    }
+
     public void updateTrackingNumber(String orderId, String trackingNumber)
             throws ExecutionException, InterruptedException {
         getCollection().document(orderId).update(
@@ -122,8 +395,45 @@ public class OrderFirestoreRepository {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Feeds every order created before the given time to the consumer, oldest first,
+     * in pages of {@code pageSize}. Only items, status and createdAt are read.
+     */
+    public void scanItemsCreatedBefore(long createdBefore, int pageSize, Consumer<OrderDocument> consumer)
+            throws ExecutionException, InterruptedException {
+        Query query = getCollection()
+                .whereLessThan("createdAt", createdBefore)
+                .orderBy("createdAt")
+                .select("items", "status", "createdAt")
+                .limit(pageSize);
+        DocumentSnapshot last = null;
+        while (true) {
+            List<QueryDocumentSnapshot> page = (last == null ? query : query.startAfter(last)).get().get().getDocuments();
+            for (QueryDocumentSnapshot doc : page) {
+                consumer.accept(doc.toObject(OrderDocument.class));
+            }
+            if (page.size() < pageSize) {
+                return;
+            }
+            last = page.get(page.size() - 1);
+        }
+    }
+
     public long count() throws ExecutionException, InterruptedException {
-        return getCollection().get().get().size();
+        Optional<Long> counted = counterRepository.read(COLLECTION_NAME);
+        if (counted.isPresent()) {
+            return counted.get();
+        }
+        return recount();
+    }
+
+    /**
+     * Counts the collection with a server-side aggregation query and re-seeds its counter.
+     */
+    public long recount() throws ExecutionException, InterruptedException {
+        long total = getCollection().count().get().get().getCount();
+        counterRepository.reset(COLLECTION_NAME, total);
+        return total;
     }
 
     public double getTotalRevenue() throws ExecutionException, InterruptedException {
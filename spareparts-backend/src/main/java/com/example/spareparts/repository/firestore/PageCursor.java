@@ -0,0 +1,101 @@
+package com.example.spareparts.repository.firestore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor: the sort value and document id of the last item on a page.
+ * Encoded as URL-safe base64 so clients treat it as a token, not as a query.
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final ProductSort sort;
+    private final boolean descending;
+    private final Object value; // String, Double or null
+    private final String id;
+
+    public PageCursor(ProductSort sort, boolean descending, Object value, String id) {
+        this.sort = sort;
+        this.descending = descending;
+        this.value = value;
+        this.id = id;
+    }
+
+    public ProductSort getSort() {
+        return sort;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String encode() {
+        String type;
+        String encodedValue;
+        if (value == null) {
+            type = "z";
+            encodedValue = "";
+        } else if (value instanceof Number) {
+            type = "n";
+            encodedValue = Double.toString(((Number) value).doubleValue());
+        } else {
+            type = "s";
+            encodedValue = value.toString();
+        }
+        String raw = sort.name() + SEPARATOR + (descending ? "d" : "a") + SEPARATOR
+                + type + SEPARATOR + id + SEPARATOR + encodedValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor and checks it was issued for the same ordering as the current request.
+     */
+    public static PageCursor decode(String token, ProductSort expectedSort, boolean expectedDescending) {
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = raw.split(SEPARATOR, 5);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 5 || parts[3].isEmpty()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        ProductSort sort;
+        try {
+            sort = ProductSort.valueOf(parts[0]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        boolean descending = "d".equals(parts[1]);
+        if (sort != expectedSort || descending != expectedDescending) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort order");
+        }
+
+        Object value;
+        switch (parts[2]) {
+            case "z" -> value = null;
+            case "n" -> {
+                try {
+                    value = Double.parseDouble(parts[4]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+            }
+            case "s" -> value = parts[4];
+            default -> throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new PageCursor(sort, descending, value, parts[3]);
+    }
+}
@@ -2,7 +2,10 @@ package com.example.spareparts.repository.firestore;
 
 import com.example.spareparts.model.firestore.ProductDocument;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.firestore.*;
+import com.google.cloud.firestore.EventListener;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
@@ -16,16 +19,34 @@ import java.util.stream.Collectors;
 public class ProductFirestoreRepository {
 
     private static final String COLLECTION_NAME = "products";
+    // Documents per getAll call; chunks are issued together and awaited afterwards
+    private static final int GET_ALL_CHUNK_SIZE = 100;
     private final Firestore firestore;
+    private final CounterFirestoreRepository counterRepository;
 
-    public ProductFirestoreRepository(Firestore firestore) {
+    public ProductFirestoreRepository(Firestore firestore, CounterFirestoreRepository counterRepository) {
         this.firestore = firestore;
+        this.counterRepository = counterRepository;
     }
 
     private CollectionReference getCollection() {
         return firestore.collection(COLLECTION_NAME);
     }
 
+    /**
+     * Reference to a product document, for reads and writes inside another repository's transaction.
+     */
+    public DocumentReference reference(String id) {
+        return getCollection().document(id);
+    }
+
+    /**
+     * Streams every change to the products collection to the given listener.
+     */
+    public ListenerRegistration listen(EventListener<QuerySnapshot> listener) {
+        return getCollection().addSnapshotListener(listener);
+    }
+
     public List<ProductDocument> findAll() throws ExecutionException, InterruptedException {
         ApiFuture<QuerySnapshot> future = getCollection().get();
         List<QueryDocumentSnapshot> documents = future.get().getDocuments();
@@ -44,14 +65,86 @@ public class ProductFirestoreRepository {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Active products, optionally filtered on one field, reading only the given fields.
+     * Fields outside the mask keep their defaults in the returned documents.
+     */
+    public List<ProductDocument> findActiveProjected(String filterField, String filterValue, List<String> fields)
+            throws ExecutionException, InterruptedException {
+        Query query = getCollection().whereEqualTo("active", true);
+        if (filterField != null) {
+            query = query.whereEqualTo(filterField, filterValue);
+        }
+        List<QueryDocumentSnapshot> documents = query.select(fields.toArray(new String[0])).get().get().getDocuments();
+        return documents.stream()
+                .map(doc -> doc.toObject(ProductDocument.class))
+                .collect(Collectors.toList());
+    }
+
     public Optional<ProductDocument> findById(String id) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = getCollection().document(id);
-        ApiFuture<DocumentSnapshot> future = docRef.get();
-        DocumentSnapshot document = future.get();
-        if (document.exists()) {
-            return Optional.of(document.toObject(ProductDocument.class));
+        return findByIdAsync(id).get();
+    }
+
+    /**
+     * Non-blocking {@link #findById}, for callers that fan out several reads at once.
+     */
+    public ApiFuture<Optional<ProductDocument>> findByIdAsync(String id) {
+        return ApiFutures.transform(getCollection().document(id).get(),
+                document -> document.exists() ? Optional.of(document.toObject(ProductDocument.class))
+                        : Optional.<ProductDocument>empty(),
+                MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Fetches the products with the given ids using batched getAll reads instead of
+     * one round trip per id. The result follows the order of the ids; duplicates are
+     * read once and missing documents are left out.
+     */
+    public Map<String, ProductDocument> findAllById(Collection<String> ids)
+            throws ExecutionException, InterruptedException {
+        List<DocumentReference> refs = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(id -> getCollection().document(id))
+                .collect(Collectors.toList());
+
+        List<ApiFuture<List<DocumentSnapshot>>> futures = new ArrayList<>();
+        for (int start = 0; start < refs.size(); start += GET_ALL_CHUNK_SIZE) {
+            List<DocumentReference> chunk = refs.subList(start, Math.min(start + GET_ALL_CHUNK_SIZE, refs.size()));
+            futures.add(firestore.getAll(chunk.toArray(new DocumentReference[0])));
+        }
+
+        Map<String, ProductDocument> found = new HashMap<>();
+        for (ApiFuture<List<DocumentSnapshot>> future : futures) {
+            for (DocumentSnapshot document : future.get()) {
+                if (document.exists()) {
+                    found.put(document.getId(), document.toObject(ProductDocument.class));
+                }
+            }
+        }
+
+        Map<String, ProductDocument> ordered = new LinkedHashMap<>();
+        for (DocumentReference ref : refs) {
+            ProductDocument product = found.get(ref.getId());
+            if (product != null) {
+                ordered.put(ref.getId(), product);
+            }
         }
-        return Optional.empty();
+        return ordered;
+    }
+
+    /**
+     * Active products whose given field (sku or barcode) equals one of the codes.
+     */
+    public List<ProductDocument> findActiveByCode(String field, Collection<String> codes)
+            throws ExecutionException, InterruptedException {
+        ApiFuture<QuerySnapshot> future = getCollection()
+                .whereIn(field, new ArrayList<>(codes))
+                .whereEqualTo("active", true)
+                .get();
+        return future.get().getDocuments().stream()
+                .map(doc -> doc.toObject(ProductDocument.class))
+                .collect(Collectors.toList());
     }
 
     public ProductDocument save(ProductDocument product) throws ExecutionException, InterruptedException {
@@ -62,17 +155,54 @@ public class ProductFirestoreRepository {
             product.setActive(true);
             DocumentReference docRef = getCollection().document();
             product.setId(docRef.getId());
-            docRef.set(product).get();
+            WriteBatch batch = firestore.batch();
+            batch.set(docRef, product);
+            counterRepository.increment(batch, COLLECTION_NAME, 1);
+            batch.commit().get();
         } else {
-            // Update existing document
-            product.setUpdatedAt(System.currentTimeMillis());
-            getCollection().document(product.getId()).set(product).get();
+            // Update existing document; stock sharding is only changed through resharding.
+            // An id that doesn't exist yet creates the document, so it is counted then.
+            DocumentReference docRef = getCollection().document(product.getId());
+            firestore.runTransaction(transaction -> {
+                DocumentSnapshot stored = transaction.get(docRef).get();
+                keepStoredStock(product, stored.exists() ? stored.toObject(ProductDocument.class) : null);
+                product.setUpdatedAt(System.currentTimeMillis());
+                transaction.set(docRef, product);
+                if (!stored.exists()) {
+                    counterRepository.increment(transaction, COLLECTION_NAME, 1);
+                }
+                return null;
+            }).get();
         }
         return product;
     }
 
+    /**
+     * Takes the shard count from the stored product, and for a sharded product also its
+     * rolled-up stock, so an edit can't switch sharding off and strand the shards' stock.
+     */
+    static void keepStoredStock(ProductDocument product, ProductDocument stored) {
+        int shards = stored != null ? stored.getStockShards() : 0;
+        product.setStockShards(shards);
+        if (shards > 0) {
+            product.setStock(stored.getStock());
+        }
+    }
+
+    /**
+     * Deletes the product and decrements the counter in one transaction, so concurrent
+     * deletes of the same product count it once.
+     */
     public void deleteById(String id) throws ExecutionException, InterruptedException {
-        getCollection().document(id).delete().get();
+        DocumentReference docRef = getCollection().document(id);
+        firestore.runTransaction(transaction -> {
+            if (!transaction.get(docRef).get().exists()) {
+                return null;
+            }
+            transaction.delete(docRef);
+            counterRepository.increment(transaction, COLLECTION_NAME, -1);
+            return null;
+        }).get();
     }
 
     public void softDelete(String id) throws ExecutionException, InterruptedException {
@@ -101,6 +231,17 @@ public class ProductFirestoreRepository {
                 .collect(Collectors.toList());
     }
 
+    public List<ProductDocument> findByCompatibleModel(String model) throws ExecutionException, InterruptedException {
+        ApiFuture<QuerySnapshot> future = getCollection()
+                .whereArrayContains("compatibleModels", model)
+                .whereEqualTo("active", true)
+                .get();
+        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
+        return documents.stream()
+                .map(doc -> doc.toObject(ProductDocument.class))
+                .collect(Collectors.toList());
+    }
+
     public List<ProductDocument> findLowStock(int threshold) throws ExecutionException, InterruptedException {
         ApiFuture<QuerySnapshot> future = getCollection()
                 .whereLessThanOrEqualTo("stock", threshold)
@@ -112,6 +253,52 @@ public class ProductFirestoreRepository {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Keyset-paginated read of active products, optionally filtered on one field.
+     * Returns up to {@code limit} documents after the cursor; callers ask for one more
+     * than the page size to learn whether another page follows. Filtered or sorted
+     * variants need a composite index on (active, filter field, sort field).
+     */
+    public List<ProductDocument> findActivePage(String filterField, String filterValue, ProductSort sort,
+            boolean descending, int limit, PageCursor after) throws ExecutionException, InterruptedException {
+        return findActivePage(filterField, filterValue, sort, descending, limit, after, null);
+    }
+
+    /**
+     * Like {@link #findActivePage(String, String, ProductSort, boolean, int, PageCursor)}, reading only
+     * the given fields plus the sort field; a null mask reads whole documents.
+     */
+    public List<ProductDocument> findActivePage(String filterField, String filterValue, ProductSort sort,
+            boolean descending, int limit, PageCursor after, List<String> fields)
+            throws ExecutionException, InterruptedException {
+        Query.Direction direction = descending ? Query.Direction.DESCENDING : Query.Direction.ASCENDING;
+        Query query = getCollection().whereEqualTo("active", true);
+        if (filterField != null) {
+            query = query.whereEqualTo(filterField, filterValue);
+        }
+        if (sort.getField() != null) {
+            query = query.orderBy(sort.getField(), direction);
+        }
+        query = query.orderBy(FieldPath.documentId(), direction);
+        if (after != null) {
+            query = sort.getField() != null
+                    ? query.startAfter(after.getValue(), after.getId())
+                    : query.startAfter(after.getId());
+        }
+        if (fields != null) {
+            Set<String> mask = new LinkedHashSet<>(fields);
+            if (sort.getField() != null) {
+                // The next-page cursor is built from the sort value
+                mask.add(sort.getField());
+            }
+            query = query.select(mask.toArray(new String[0]));
+        }
+        List<QueryDocumentSnapshot> documents = query.limit(limit).get().get().getDocuments();
+        return documents.stream()
+                .map(doc -> doc.toObject(ProductDocument.class))
+                .collect(Collectors.toList());
+    }
+
     public List<ProductDocument> searchProducts(String query) throws ExecutionException, InterruptedException {
         // Firestore doesn't support full-text search natively
         // This is a simple implementation - for production use Algolia or similar
@@ -132,6 +319,19 @@ public class ProductFirestoreRepository {
     }
 
     public long count() throws ExecutionException, InterruptedException {
-        return getCollection().get().get().size();
+        Optional<Long> counted = counterRepository.read(COLLECTION_NAME);
+        if (counted.isPresent()) {
+            return counted.get();
+        }
+        return recount();
+    }
+
+    /**
+     * Counts the collection with a server-side aggregation query and re-seeds its counter.
+     */
+    public long recount() throws ExecutionException, InterruptedException {
+        long total = getCollection().count().get().get().getCount();
+        counterRepository.reset(COLLECTION_NAME, total);
+        return total;
     }
 }
@@ -0,0 +1,92 @@
+package com.example.spareparts.repository.firestore;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Sort keys supported by the paginated product listings.
+ * Every ordering is made total by breaking ties on the document id.
+ */
+public enum ProductSort {
+    ID(null, p -> null),
+    NAME("name", ProductDocument::getName),
+    PRICE("price", p -> p.getPrice()),
+    RATING("averageRating", p -> p.getAverageRating()),
+    STOCK("stock", p -> (double) p.getStock()),
+    CREATED_AT("createdAt", p -> (double) p.getCreatedAt()),
+    UPDATED_AT("updatedAt", p -> (double) p.getUpdatedAt());
+
+    private final String field;
+    private final Function<ProductDocument, Object> extractor;
+
+    ProductSort(String field, Function<ProductDocument, Object> extractor) {
+        this.field = field;
+        this.extractor = extractor;
+    }
+
+    /**
+     * Firestore field to order by, or null when ordering by document id only.
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Sort value of the given product: a String, a Double, or null for {@link #ID}.
+     */
+    public Object valueOf(ProductDocument product) {
+        return extractor.apply(product);
+    }
+
+    /**
+     * Orders products the way the equivalent Firestore query would: by sort value
+     * (nulls first), then by document id, both in the requested direction.
+     */
+    public Comparator<ProductDocument> comparator(boolean descending) {
+        Comparator<ProductDocument> ascending = (a, b) -> compareKeys(valueOf(a), a.getId(), valueOf(b), b.getId());
+        return descending ? ascending.reversed() : ascending;
+    }
+
+    /**
+     * Position of the product relative to the cursor in the cursor's ordering:
+     * positive when the product comes after the cursor.
+     */
+    public int compareToCursor(ProductDocument product, PageCursor cursor) {
+        int result = compareKeys(valueOf(product), product.getId(), cursor.getValue(), cursor.getId());
+        return cursor.isDescending() ? -result : result;
+    }
+
+    /**
+     * Ascending order of (sort value, id) pairs, with null values first.
+     */
+    public static int compareKeys(Object valueA, String idA, Object valueB, String idB) {
+        int byValue = compareValues(valueA, valueB);
+        return byValue != 0 ? byValue : idA.compareTo(idB);
+    }
+
+    private static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    public static ProductSort parse(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        String normalized = value.trim();
+        for (ProductSort sort : values()) {
+            if (normalized.equalsIgnoreCase(sort.name()) || normalized.equalsIgnoreCase(sort.field)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort: " + value.toLowerCase(Locale.ROOT));
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.spareparts.repository.firestore;
 
+import com.example.spareparts.dto.RatingSummary;
 import com.example.spareparts.model.firestore.ReviewDocument;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.firestore.*;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
@@ -26,10 +29,14 @@ public class ReviewFirestoreRepository {
         return firestore.collection(COLLECTION_NAME);
     }
 
-    public List<ReviewDocument> findByProductId(String productId) throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = getCollection()
+    private Query activeReviews(String productId) {
+        return getCollection()
                 .whereEqualTo("productId", productId)
-                .whereEqualTo("active", true)
+                .whereEqualTo("active", true);
+    }
+
+    public List<ReviewDocument> findByProductId(String productId) throws ExecutionException, InterruptedException {
+        ApiFuture<QuerySnapshot> future = activeReviews(productId)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
                 .get();
         List<QueryDocumentSnapshot> documents = future.get().getDocuments();
@@ -38,6 +45,47 @@ public class ReviewFirestoreRepository {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * The newest {@code limit} active reviews of a product, without waiting for them.
+     */
+    public ApiFuture<List<ReviewDocument>> findLatestByProductIdAsync(String productId, int limit) {
+        ApiFuture<QuerySnapshot> future = activeReviews(productId)
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .limit(limit)
+                .get();
+        return ApiFutures.transform(future,
+                snapshot -> snapshot.getDocuments().stream()
+                        .map(doc -> doc.toObject(ReviewDocument.class))
+                        .collect(Collectors.toList()),
+                MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Review count, mean rating and per-star counts from aggregation queries, all sent
+     * at once; no review documents are read.
+     */
+    public ApiFuture<RatingSummary> getRatingSummaryAsync(String productId) {
+        AggregateField average = AggregateField.average("rating");
+        ApiFuture<AggregateQuerySnapshot> totals = activeReviews(productId)
+                .aggregate(AggregateField.count(), average)
+                .get();
+        List<ApiFuture<AggregateQuerySnapshot>> perStar = new ArrayList<>();
+        for (int star = 1; star <= 5; star++) {
+            perStar.add(activeReviews(productId).whereEqualTo("rating", star).count().get());
+        }
+        List<ApiFuture<AggregateQuerySnapshot>> all = new ArrayList<>(perStar);
+        all.add(totals);
+        return ApiFutures.transform(ApiFutures.allAsList(all), snapshots -> {
+            Map<Integer, Long> distribution = new LinkedHashMap<>();
+            for (int star = 1; star <= 5; star++) {
+                distribution.put(star, snapshots.get(star - 1).getCount());
+            }
+            AggregateQuerySnapshot total = snapshots.get(5);
+            Double mean = total.getDouble(average);
+            return new RatingSummary(total.getCount(), mean != null ? mean : 0.0, distribution);
+        }, MoreExecutors.directExecutor());
+    }
+
     public List<ReviewDocument> findByUserId(String userId) throws ExecutionException, InterruptedException {
         ApiFuture<QuerySnapshot> future = getCollection()
                 .whereEqualTo("userId", userId)
@@ -86,18 +134,13 @@ public class ReviewFirestoreRepository {
     }
 
     public double getAverageRating(String productId) throws ExecutionException, InterruptedException {
-        List<ReviewDocument> reviews = findByProductId(productId);
-        if (reviews.isEmpty()) {
-            return 0.0;
-        }
-        return reviews.stream()
-                .mapToInt(ReviewDocument::getRating)
-                .average()
-                .orElse(0.0);
+        AggregateField average = AggregateField.average("rating");
+        Double mean = activeReviews(productId).aggregate(average).get().get().getDouble(average);
+        return mean != null ? mean : 0.0;
     }
 
     public int getReviewCount(String productId) throws ExecutionException, InterruptedException {
-        return findByProductId(productId).size();
+        return (int) activeReviews(productId).count().get().get().getCount();
     }
 
     public boolean hasUserReviewed(String productId, String userId) throws ExecutionException, InterruptedException {
@@ -0,0 +1,223 @@
+package com.example.spareparts.repository.firestore;
+
+import com.google.cloud.firestore.*;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Firestore repository for sharded product stock.
+ * A product with {@code stockShards = N} keeps its stock in
+ * products/{id}/stockShards/{0..N-1} instead of its own stock field, so concurrent
+ * sales of a hot item write to different documents and don't queue behind one
+ * document's write rate. The product's stock field is then a rolled-up copy for
+ * listings; {@link #sum} is the live value.
+ */
+@Repository
+public class StockShardFirestoreRepository {
+
+    private static final String PRODUCTS = "products";
+    private static final String SHARDS = "stockShards";
+    private static final int RESHARD_ATTEMPTS = 5;
+    private final Firestore firestore;
+
+    public StockShardFirestoreRepository(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    private DocumentReference getProduct(String productId) {
+        return firestore.collection(PRODUCTS).document(productId);
+    }
+
+    private DocumentReference getShard(String productId, int shard) {
+        return getProduct(productId).collection(SHARDS).document(String.valueOf(shard));
+    }
+
+    /**
+     * Moves the product's stock onto the given number of shards, spread evenly, or back
+     * into its stock field when {@code shardCount} is 0. Runs in a transaction with the
+     * current shards, so no sale is lost during the move.
+     *
+     * @return the product's total stock
+     * @throws IllegalStateException if the product doesn't exist
+     */
+    public long reshard(String productId, int shardCount) throws ExecutionException, InterruptedException {
+        TransactionOptions options = TransactionOptions.createReadWriteOptionsBuilder()
+                .setNumberOfAttempts(RESHARD_ATTEMPTS)
+                .build();
+        return firestore.runTransaction(transaction -> {
+            DocumentSnapshot product = transaction.get(getProduct(productId)).get();
+            if (!product.exists()) {
+                throw new IllegalStateException("Product not found: " + productId);
+            }
+            int current = shardCount(product);
+            long total = 0;
+            if (current > 0) {
+                for (DocumentSnapshot shard : transaction.getAll(shardRefs(productId, current)).get()) {
+                    total += stockOf(shard);
+                }
+            } else {
+                Long stock = product.getLong("stock");
+                total = stock != null ? stock : 0;
+            }
+
+            for (int i = 0; i < shardCount; i++) {
+                long share = total / shardCount + (i < total % shardCount ? 1 : 0);
+                transaction.set(getShard(productId, i), Map.of("stock", share));
+            }
+            for (int i = shardCount; i < current; i++) {
+                transaction.delete(getShard(productId, i));
+            }
+            transaction.update(getProduct(productId), "stockShards", shardCount, "stock", total,
+                    "updatedAt", System.currentTimeMillis());
+            return total;
+        }, options).get();
+    }
+
+    /**
+     * Live stock of a sharded product: the sum of its shards.
+     */
+    public long sum(String productId, int shardCount) throws ExecutionException, InterruptedException {
+        long total = 0;
+        for (DocumentSnapshot shard : firestore.getAll(shardRefs(productId, shardCount)).get()) {
+            total += stockOf(shard);
+        }
+        return total;
+    }
+
+    /**
+     * Adds (positive) or removes (negative) stock, reading the product's shard count in
+     * the same transaction so a concurrent reshard can't send the change to the wrong place.
+     * Additions to a sharded product go to a random shard without reading it.
+     *
+     * @return whether the product's stock is sharded, so its stock field needs a roll-up
+     * @throws IllegalStateException if a sharded product has less stock than is removed
+     */
+    public boolean updateStock(String productId, long quantity) throws ExecutionException, InterruptedException {
+        try {
+            return firestore.runTransaction(transaction -> {
+                int shardCount = shardCount(transaction.get(getProduct(productId)).get());
+                if (shardCount == 0) {
+                    transaction.update(getProduct(productId), "stock", FieldValue.increment(quantity),
+                            "updatedAt", System.currentTimeMillis());
+                } else if (quantity > 0) {
+                    transaction.set(getShard(productId, ThreadLocalRandom.current().nextInt(shardCount)),
+                            Map.of("stock", FieldValue.increment(quantity)), SetOptions.merge());
+                } else if (quantity < 0) {
+                    Map<DocumentReference, Long> plan = allocate(transaction, productId, shardCount, -quantity,
+                            new HashMap<>());
+                    if (plan == null) {
+                        throw new IllegalStateException("Insufficient stock for: " + productId);
+                    }
+                    apply(transaction, plan);
+                }
+                return shardCount > 0;
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalStateException) {
+                throw (IllegalStateException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads shards inside the transaction, starting at a random one, until they cover the
+     * quantity. Usually the first shard has enough, so a sale reads and locks a single
+     * shard and concurrent sales land on different ones; fragmented stock spills over
+     * into the next shards. Only reads, so it can run before the transaction's writes.
+     *
+     * @param shardStock stock of the shards read so far in this transaction; shards read
+     *                   here are added. Callers allocating several times in one
+     *                   transaction put accepted plans back into it.
+     * @return new stock per shard to write with {@link #apply}, or null if all shards
+     *         together hold less than the quantity
+     * @throws ShardsMovedException if a shard is missing, i.e. the shard count the caller
+     *         used was read before a reshard; the caller should read it again and retry
+     */
+    public Map<DocumentReference, Long> allocate(Transaction transaction, String productId, int shardCount,
+            long quantity, Map<DocumentReference, Long> shardStock) throws ExecutionException, InterruptedException {
+        Map<DocumentReference, Long> plan = new LinkedHashMap<>();
+        long needed = quantity;
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        for (int i = 0; i < shardCount && needed > 0; i++) {
+            DocumentReference ref = getShard(productId, (start + i) % shardCount);
+            Long read = shardStock.get(ref);
+            if (read == null) {
+                DocumentSnapshot shard = transaction.get(ref).get();
+                if (!shard.exists()) {
+                    throw new ShardsMovedException(productId);
+                }
+                read = stockOf(shard);
+                shardStock.put(ref, read);
+            }
+            long available = read;
+            long taken = Math.min(available, needed);
+            if (taken > 0) {
+                plan.put(ref, available - taken);
+                needed -= taken;
+            }
+        }
+        return needed > 0 ? null : plan;
+    }
+
+    public void apply(Transaction transaction, Map<DocumentReference, Long> plan) {
+        plan.forEach((ref, stock) -> transaction.update(ref, "stock", stock));
+    }
+
+    /**
+     * Thrown by {@link #allocate} when the shard count it was given is out of date.
+     * Every shard of a sharded product exists, so a missing one means a reshard moved the stock.
+     */
+    public static class ShardsMovedException extends RuntimeException {
+        public ShardsMovedException(String productId) {
+            super("Stock shards moved for: " + productId);
+        }
+    }
+
+    /**
+     * Copies the live sum into the product's stock field if it is still sharded and the
+     * value changed. Reads the product in a transaction, so a reshard running at the same
+     * time can't be overwritten with a stale sum. The shards are read outside it, so a
+     * roll-up doesn't lock them against checkouts; a sale it misses schedules another.
+     * One write per call, so callers decide how often listings catch up.
+     */
+    public void rollUp(String productId) throws ExecutionException, InterruptedException {
+        firestore.runTransaction(transaction -> {
+            DocumentSnapshot product = transaction.get(getProduct(productId)).get();
+            int shardCount = shardCount(product);
+            if (shardCount == 0) {
+                return null;
+            }
+            long total = sum(productId, shardCount);
+            Long stock = product.getLong("stock");
+            if (stock == null || stock != total) {
+                transaction.update(getProduct(productId), "stock", total, "updatedAt", System.currentTimeMillis());
+            }
+            return null;
+        }).get();
+    }
+
+    /**
+     * Shard count recorded on a product document; 0 when its stock isn't sharded.
+     */
+    public static int shardCount(DocumentSnapshot product) {
+        Long shards = product.exists() ? product.getLong("stockShards") : null;
+        return shards != null ? shards.intValue() : 0;
+    }
+
+    private DocumentReference[] shardRefs(String productId, int shardCount) {
+        DocumentReference[] refs = new DocumentReference[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            refs[i] = getShard(productId, i);
+        }
+        return refs;
+    }
+
+    private static long stockOf(DocumentSnapshot shard) {
+        Long stock = shard.exists() ? shard.getLong("stock") : null;
+        return stock != null ? stock : 0;
+    }
+}
@@ -17,9 +17,11 @@ public class SupplierFirestoreRepository {
 
     private static final String COLLECTION_NAME = "suppliers";
     private final Firestore firestore;
+    private final CounterFirestoreRepository counterRepository;
 
-    public SupplierFirestoreRepository(Firestore firestore) {
+    public SupplierFirestoreRepository(Firestore firestore, CounterFirestoreRepository counterRepository) {
         this.firestore = firestore;
+        this.counterRepository = counterRepository;
     }
 
     private CollectionReference getCollection() {
@@ -62,11 +64,22 @@ public class SupplierFirestoreRepository {
             supplier.setActive(true);
             DocumentReference docRef = getCollection().document();
             supplier.setId(docRef.getId());
-            docRef.set(supplier).get();
+            WriteBatch batch = firestore.batch();
+            batch.set(docRef, supplier);
+            counterRepository.increment(batch, COLLECTION_NAME, 1);
+            batch.commit().get();
         } else {
-            // Update existing document
+            // Update existing document; an id that doesn't exist yet creates it, so count it then
             supplier.setUpdatedAt(System.currentTimeMillis());
-            getCollection().document(supplier.getId()).set(supplier).get();
+            DocumentReference docRef = getCollection().document(supplier.getId());
+            firestore.runTransaction(transaction -> {
+                boolean exists = transaction.get(docRef).get().exists();
+                transaction.set(docRef, supplier);
+                if (!exists) {
+                    counterRepository.increment(transaction, COLLECTION_NAME, 1);
+                }
+                return null;
+            }).get();
         }
         return supplier;
     }
@@ -87,6 +100,19 @@ public class SupplierFirestoreRepository {
     }
 
     public long count() throws ExecutionException, InterruptedException {
-        return getCollection().get().get().size();
+        Optional<Long> counted = counterRepository.read(COLLECTION_NAME);
+        if (counted.isPresent()) {
+            return counted.get();
+        }
+        return recount();
+    }
+
+    /**
+     * Counts the collection with a server-side aggregation query and re-seeds its counter.
+     */
+    public long recount() throws ExecutionException, InterruptedException {
+        long total = getCollection().count().get().get().getCount();
+        counterRepository.reset(COLLECTION_NAME, total);
+        return total;
     }
 }
@@ -17,9 +17,11 @@ public class UserFirestoreRepository {
 
     private static final String COLLECTION_NAME = "users";
     private final Firestore firestore;
+    private final CounterFirestoreRepository counterRepository;
 
-    public UserFirestoreRepository(Firestore firestore) {
+    public UserFirestoreRepository(Firestore firestore, CounterFirestoreRepository counterRepository) {
         this.firestore = firestore;
+        this.counterRepository = counterRepository;
     }
 
     private CollectionReference getCollection() {
@@ -78,7 +80,14 @@ public class UserFirestoreRepository {
             user.setCreatedAt(existingUser.get().getCreatedAt());
         }
 
-        getCollection().document(user.getId()).set(user).get();
+        if (existingUser.isEmpty()) {
+            WriteBatch batch = firestore.batch();
+            batch.set(getCollection().document(user.getId()), user);
+            counterRepository.increment(batch, COLLECTION_NAME, 1);
+            batch.commit().get();
+        } else {
+            getCollection().document(user.getId()).set(user).get();
+        }
         return user;
     }
 
@@ -121,6 +130,19 @@ public class UserFirestoreRepository {
     }
 
     public long count() throws ExecutionException, InterruptedException {
-        return getCollection().get().get().size();
+        Optional<Long> counted = counterRepository.read(COLLECTION_NAME);
+        if (counted.isPresent()) {
+            return counted.get();
+        }
+        return recount();
+    }
+
+    /**
+     * Counts the collection with a server-side aggregation query and re-seeds its counter.
+     */
+    public long recount() throws ExecutionException, InterruptedException {
+        long total = getCollection().count().get().get().getCount();
+        counterRepository.reset(COLLECTION_NAME, total);
+        return total;
     }
 }
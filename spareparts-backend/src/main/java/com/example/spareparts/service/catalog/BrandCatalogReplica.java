@@ -0,0 +1,40 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.BrandDocument;
+import com.example.spareparts.repository.firestore.BrandFirestoreRepository;
+import com.google.cloud.firestore.EventListener;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * In-memory replica of the brands collection, including each brand's model list.
+ */
+@Component
+public class BrandCatalogReplica extends FirestoreCollectionReplica<BrandDocument> {
+
+    private final BrandFirestoreRepository brandRepository;
+
+    public BrandCatalogReplica(BrandFirestoreRepository brandRepository,
+            List<ReplicaListener<BrandDocument>> listeners) {
+        super(listeners);
+        this.brandRepository = brandRepository;
+    }
+
+    @Override
+    protected ListenerRegistration subscribe(EventListener<QuerySnapshot> listener) {
+        return brandRepository.listen(listener);
+    }
+
+    @Override
+    protected Class<BrandDocument> documentType() {
+        return BrandDocument.class;
+    }
+
+    @Override
+    protected String collectionName() {
+        return "brands";
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Precomputed, gzip-compressed JSON of the whole active catalogue for clients that
+ * load everything at startup (POS terminals, the storefront).
+ * <p>
+ * The artifact is regenerated off-thread when the product replica changes, with bursts
+ * coalesced into one rebuild. Its ETag is a hash of the content, so it only changes when
+ * the catalogue does and stays stable across restarts; revalidating costs no Firestore reads.
+ */
+@Component
+public class CatalogSnapshot {
+
+    private static final long REBUILD_DELAY_MS = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final ProductCatalogReplica productReplica;
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-snapshot-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private volatile Artifact current;
+
+    public CatalogSnapshot(ObjectMapper objectMapper, ProductCatalogReplica productReplica) {
+        this.objectMapper = objectMapper;
+        this.productReplica = productReplica;
+        productReplica.addListener((upserted, removed, initialLoad) -> scheduleRebuild());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * The latest artifact, or null if none has been built yet.
+     */
+    public Artifact current() {
+        return current;
+    }
+
+    /**
+     * Serializes and compresses the active products on the calling thread and publishes the result.
+     */
+    public synchronized Artifact rebuild(Collection<ProductDocument> products) {
+        List<ProductDocument> active = products.stream()
+                .filter(ProductDocument::isActive)
+                .sorted(Comparator.comparing(ProductDocument::getId))
+                .collect(Collectors.toList());
+        try {
+            byte[] productsJson = objectMapper.writeValueAsBytes(active);
+            String hash = sha256(productsJson);
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("version", hash);
+            body.put("productCount", active.size());
+            body.put("products", active);
+            byte[] json = objectMapper.writeValueAsBytes(body);
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(json);
+            }
+            Artifact artifact = new Artifact(hash, compressed.toByteArray(), json.length, active.size(),
+                    System.currentTimeMillis());
+            current = artifact;
+            return artifact;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not build catalog snapshot", e);
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild(productReplica.values());
+                } catch (Exception e) {
+                    System.err.println("Catalog snapshot rebuild failed - " + e.getMessage());
+                }
+            }, REBUILD_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * One immutable build of the snapshot.
+     */
+    public static class Artifact {
+        private final String version;
+        private final byte[] gzipped;
+        private final int uncompressedLength;
+        private final int productCount;
+        private final long generatedAt;
+
+        Artifact(String version, byte[] gzipped, int uncompressedLength, int productCount, long generatedAt) {
+            this.version = version;
+            this.gzipped = gzipped;
+            this.uncompressedLength = uncompressedLength;
+            this.productCount = productCount;
+            this.generatedAt = generatedAt;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public byte[] getGzipped() {
+            return gzipped;
+        }
+
+        public int getProductCount() {
+            return productCount;
+        }
+
+        public long getGeneratedAt() {
+            return generatedAt;
+        }
+
+        /**
+         * Strong ETag of the given encoding; the gzip and identity bodies are different bytes.
+         */
+        public String etag(boolean gzip) {
+            return "\"" + version + (gzip ? "-gzip" : "") + "\"";
+        }
+
+        /**
+         * Whether an If-None-Match header names this version in either encoding.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(etag(true)) || candidate.equals(etag(false))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * The uncompressed JSON, for clients that don't accept gzip.
+         */
+        public byte[] decompress() {
+            try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+                byte[] json = new byte[uncompressedLength];
+                int read = 0;
+                while (read < json.length) {
+                    int n = gzip.read(json, read, json.length - read);
+                    if (n < 0) {
+                        break;
+                    }
+                    read += n;
+                }
+                return json;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Corrupt catalog snapshot", e);
+            }
+        }
+    }
+}
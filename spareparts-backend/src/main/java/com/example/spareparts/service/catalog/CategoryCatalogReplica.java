@@ -0,0 +1,40 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.CategoryDocument;
+import com.example.spareparts.repository.firestore.CategoryFirestoreRepository;
+import com.google.cloud.firestore.EventListener;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * In-memory replica of the categories collection.
+ */
+@Component
+public class CategoryCatalogReplica extends FirestoreCollectionReplica<CategoryDocument> {
+
+    private final CategoryFirestoreRepository categoryRepository;
+
+    public CategoryCatalogReplica(CategoryFirestoreRepository categoryRepository,
+            List<ReplicaListener<CategoryDocument>> listeners) {
+        super(listeners);
+        this.categoryRepository = categoryRepository;
+    }
+
+    @Override
+    protected ListenerRegistration subscribe(EventListener<QuerySnapshot> listener) {
+        return categoryRepository.listen(listener);
+    }
+
+    @Override
+    protected Class<CategoryDocument> documentType() {
+        return CategoryDocument.class;
+    }
+
+    @Override
+    protected String collectionName() {
+        return "categories";
+    }
+}
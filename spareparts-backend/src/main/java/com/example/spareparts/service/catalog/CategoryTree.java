@@ -0,0 +1,286 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.CategoryDocument;
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * The active categories materialized as a tree, with slug and id lookup and product
+ * counts rolled up to every ancestor. Replaces walking the hierarchy with one
+ * {@code findSubcategories} query per node.
+ * <p>
+ * Product changes only move per-category counts; category changes replace the category
+ * set. Either way a new immutable {@link Snapshot} is published (categories number in
+ * the tens, so that is cheap) and readers get the current one without locking.
+ * Products reference categories by slug; an id is accepted as well.
+ */
+@Component
+public class CategoryTree {
+
+    private final Map<String, CategoryDocument> categories = new HashMap<>();
+    private final Map<String, String> productCategories = new HashMap<>();
+    private final Map<String, Integer> directCounts = new HashMap<>();
+    private boolean categoriesLoaded;
+    private boolean productsLoaded;
+    private volatile Snapshot current;
+
+    public CategoryTree(CategoryCatalogReplica categoryReplica, ProductCatalogReplica productReplica) {
+        categoryReplica.addListener(this::onCategoriesChanged);
+        productReplica.addListener(this::onProductsChanged);
+    }
+
+    /**
+     * The latest tree, or null until both the category and product replicas have loaded.
+     */
+    public Snapshot current() {
+        return current;
+    }
+
+    synchronized void onCategoriesChanged(Collection<CategoryDocument> upserted, Collection<String> removed,
+            boolean initialLoad) {
+        if (initialLoad) {
+            categories.clear();
+        }
+        removed.forEach(categories::remove);
+        for (CategoryDocument category : upserted) {
+            categories.put(category.getId(), category);
+        }
+        categoriesLoaded = true;
+        publish();
+    }
+
+    synchronized void onProductsChanged(Collection<ProductDocument> upserted, Collection<String> removed,
+            boolean initialLoad) {
+        if (initialLoad) {
+            productCategories.clear();
+            directCounts.clear();
+        }
+        removed.forEach(this::uncount);
+        for (ProductDocument product : upserted) {
+            uncount(product.getId());
+            if (product.isActive() && product.getCategory() != null) {
+                productCategories.put(product.getId(), product.getCategory());
+                directCounts.merge(product.getCategory(), 1, Integer::sum);
+            }
+        }
+        productsLoaded = true;
+        publish();
+    }
+
+    private void uncount(String productId) {
+        String category = productCategories.remove(productId);
+        if (category != null) {
+            directCounts.computeIfPresent(category, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private void publish() {
+        if (categoriesLoaded && productsLoaded) {
+            current = build(categories.values(), directCounts);
+        }
+    }
+
+    /**
+     * Builds a tree from the given categories and active products, e.g. straight from
+     * Firestore while the replicas are still loading.
+     */
+    public static Snapshot build(Collection<CategoryDocument> categories, Collection<ProductDocument> products) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (ProductDocument product : products) {
+            if (product.isActive() && product.getCategory() != null) {
+                counts.merge(product.getCategory(), 1, Integer::sum);
+            }
+        }
+        return build(categories, counts);
+    }
+
+    private static Snapshot build(Collection<CategoryDocument> categories, Map<String, Integer> directCounts) {
+        Map<String, CategoryDocument> active = new HashMap<>();
+        for (CategoryDocument category : categories) {
+            if (category.isActive() && category.getId() != null) {
+                active.put(category.getId(), category);
+            }
+        }
+
+        // Children per parent; a category whose parent is missing or inactive is hidden with it,
+        // one without a parent is a root
+        Map<String, List<CategoryDocument>> children = new HashMap<>();
+        List<CategoryDocument> roots = new ArrayList<>();
+        for (CategoryDocument category : active.values()) {
+            String parentId = category.getParentId();
+            if (parentId == null || parentId.isEmpty()) {
+                roots.add(category);
+            } else if (active.containsKey(parentId)) {
+                children.computeIfAbsent(parentId, key -> new ArrayList<>()).add(category);
+            }
+        }
+
+        Map<String, Node> byId = new HashMap<>();
+        Map<String, Node> bySlug = new HashMap<>();
+        List<Node> rootNodes = attach(roots, children, directCounts, Collections.emptyList(), byId, bySlug);
+        return new Snapshot(rootNodes, byId, bySlug, System.currentTimeMillis());
+    }
+
+    private static List<Node> attach(List<CategoryDocument> level, Map<String, List<CategoryDocument>> children,
+            Map<String, Integer> directCounts, List<String> path, Map<String, Node> byId, Map<String, Node> bySlug) {
+        level.sort(Comparator.comparingInt(CategoryDocument::getDisplayOrder)
+                .thenComparing(CategoryDocument::getName, Comparator.nullsLast(Comparator.naturalOrder())));
+        List<Node> nodes = new ArrayList<>(level.size());
+        for (CategoryDocument category : level) {
+            // A parent cycle would otherwise recurse forever; the first visit wins
+            if (byId.containsKey(category.getId())) {
+                continue;
+            }
+            List<String> nodePath = new ArrayList<>(path);
+            nodePath.add(category.getSlug() != null ? category.getSlug() : category.getId());
+            int direct = directCounts.getOrDefault(category.getId(), 0);
+            if (category.getSlug() != null && !category.getSlug().equals(category.getId())) {
+                direct += directCounts.getOrDefault(category.getSlug(), 0);
+            }
+            Node node = new Node(category, path.size(), direct, Collections.unmodifiableList(nodePath));
+            byId.put(category.getId(), node);
+            if (category.getSlug() != null) {
+                bySlug.putIfAbsent(category.getSlug(), node);
+            }
+            List<Node> childNodes = attach(children.getOrDefault(category.getId(), new ArrayList<>()), children,
+                    directCounts, nodePath, byId, bySlug);
+            node.children = Collections.unmodifiableList(childNodes);
+            node.totalProductCount = direct + childNodes.stream().mapToInt(Node::getTotalProductCount).sum();
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    /**
+     * One immutable build of the tree.
+     */
+    public static class Snapshot {
+        private final List<Node> roots;
+        private final Map<String, Node> byId;
+        private final Map<String, Node> bySlug;
+        private final long builtAt;
+
+        Snapshot(List<Node> roots, Map<String, Node> byId, Map<String, Node> bySlug, long builtAt) {
+            this.roots = Collections.unmodifiableList(roots);
+            this.byId = byId;
+            this.bySlug = bySlug;
+            this.builtAt = builtAt;
+        }
+
+        public List<Node> getRoots() {
+            return roots;
+        }
+
+        public long getBuiltAt() {
+            return builtAt;
+        }
+
+        public int getCategoryCount() {
+            return byId.size();
+        }
+
+        public Optional<Node> findById(String id) {
+            return Optional.ofNullable(byId.get(id));
+        }
+
+        public Optional<Node> findBySlug(String slug) {
+            return Optional.ofNullable(bySlug.get(slug));
+        }
+    }
+
+    /**
+     * A category with its subtree and product counts.
+     */
+    public static class Node {
+        private final String id;
+        private final String name;
+        private final String slug;
+        private final String description;
+        private final String icon;
+        private final String imageUrl;
+        private final String parentId;
+        private final int displayOrder;
+        private final int depth;
+        private final List<String> path;
+        private final int productCount;
+        private int totalProductCount;
+        private List<Node> children;
+
+        Node(CategoryDocument category, int depth, int productCount, List<String> path) {
+            this.id = category.getId();
+            this.name = category.getName();
+            this.slug = category.getSlug();
+            this.description = category.getDescription();
+            this.icon = category.getIcon();
+            this.imageUrl = category.getImageUrl();
+            this.parentId = category.getParentId();
+            this.displayOrder = category.getDisplayOrder();
+            this.depth = depth;
+            this.path = path;
+            this.productCount = productCount;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSlug() {
+            return slug;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getIcon() {
+            return icon;
+        }
+
+        public String getImageUrl() {
+            return imageUrl;
+        }
+
+        public String getParentId() {
+            return parentId;
+        }
+
+        public int getDisplayOrder() {
+            return displayOrder;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Slugs from the root down to this category, for breadcrumbs and routing.
+         */
+        public List<String> getPath() {
+            return path;
+        }
+
+        /**
+         * Active products filed directly under this category.
+         */
+        public int getProductCount() {
+            return productCount;
+        }
+
+        /**
+         * Active products in this category and all of its descendants.
+         */
+        public int getTotalProductCount() {
+            return totalProductCount;
+        }
+
+        public List<Node> getChildren() {
+            return children;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.spareparts.service.catalog;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-side copy of a Firestore collection held in memory and kept current by a
+ * snapshot listener. Documents are kept in id order, matching Firestore's default
+ * query ordering. Every applied snapshot bumps {@link #getVersion()}.
+ * <p>
+ * Snapshot listener errors are terminal in Firestore, so a failed listener is replaced
+ * after a backoff (doubling from {@value #MIN_RESUBSCRIBE_DELAY_MS} ms up to
+ * {@value #MAX_RESUBSCRIBE_DELAY_MS} ms). The new listener's first snapshot is delivered
+ * as an initial load, so every index fed by the replica is rebuilt from current data.
+ */
+public abstract class FirestoreCollectionReplica<T> {
+
+    private static final long MIN_RESUBSCRIBE_DELAY_MS = 1000;
+    private static final long MAX_RESUBSCRIBE_DELAY_MS = 60_000;
+
+    // Shared by all replicas; it only ever runs quick resubscribe calls
+    private static final ScheduledExecutorService RESUBSCRIBER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-resubscribe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, T> documents = new ConcurrentSkipListMap<>();
+    private final List<ReplicaListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastSyncedAt;
+    private volatile boolean ready;
+    private ListenerRegistration registration;
+    private boolean stopped;
+    private long resubscribeDelayMs = MIN_RESUBSCRIBE_DELAY_MS;
+    private ScheduledFuture<?> resubscribe;
+
+    protected FirestoreCollectionReplica(List<? extends ReplicaListener<T>> listeners) {
+        this.listeners.addAll(listeners);
+    }
+
+    /**
+     * Registers the snapshot listener on the underlying collection.
+     */
+    protected abstract ListenerRegistration subscribe(com.google.cloud.firestore.EventListener<QuerySnapshot> listener);
+
+    protected abstract Class<T> documentType();
+
+    protected abstract String collectionName();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (registration != null || stopped) {
+            return;
+        }
+        try {
+            registration = subscribe(this::onSnapshot);
+        } catch (Exception e) {
+            System.err.println("Replica " + collectionName() + ": could not start snapshot listener - " + e.getMessage());
+            scheduleResubscribe();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        stopped = true;
+        if (resubscribe != null) {
+            resubscribe.cancel(false);
+            resubscribe = null;
+        }
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        ready = false;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getLastSyncedAt() {
+        return lastSyncedAt;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Registers a listener at runtime. If the replica is already loaded the listener
+     * immediately receives the full collection as an initial load.
+     */
+    public synchronized void addListener(ReplicaListener<T> listener) {
+        listeners.add(listener);
+        if (ready) {
+            listener.onReplicaChanged(new ArrayList<>(documents.values()), Collections.emptyList(), true);
+        }
+    }
+
+    public Optional<T> get(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(documents.get(id));
+    }
+
+    public Collection<T> values() {
+        return Collections.unmodifiableCollection(documents.values());
+    }
+
+    private synchronized void onSnapshot(QuerySnapshot snapshot, FirestoreException error) {
+        if (error != null) {
+            // Listener errors are terminal; readers fall back to direct queries until a
+            // new listener delivers its initial load
+            System.err.println("Replica " + collectionName() + ": snapshot listener failed - " + error.getMessage());
+            ready = false;
+            registration = null;
+            scheduleResubscribe();
+            return;
+        }
+        if (snapshot == null) {
+            return;
+        }
+
+        boolean initialLoad = !ready;
+        if (initialLoad) {
+            // The first snapshot after (re)subscribing carries the complete collection
+            documents.clear();
+        }
+
+        List<T> upserted = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            String id = change.getDocument().getId();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                documents.remove(id);
+                removed.add(id);
+            } else {
+                T document = change.getDocument().toObject(documentType());
+                documents.put(id, document);
+                upserted.add(document);
+            }
+        }
+
+        ready = true;
+        resubscribeDelayMs = MIN_RESUBSCRIBE_DELAY_MS;
+
+        for (ReplicaListener<T> listener : listeners) {
+            try {
+                listener.onReplicaChanged(initialLoad ? new ArrayList<>(documents.values()) : upserted,
+                        removed, initialLoad);
+            } catch (Exception e) {
+                System.err.println("Replica " + collectionName() + ": listener failed - " + e.getMessage());
+            }
+        }
+
+        // Bumped once the listeners' indexes are current, so a response cached under
+        // the new version is never built from the previous index state
+        lastSyncedAt = System.currentTimeMillis();
+        version.incrementAndGet();
+    }
+
+    private void scheduleResubscribe() {
+        if (stopped || resubscribe != null) {
+            return;
+        }
+        long delay = resubscribeDelayMs;
+        resubscribeDelayMs = Math.min(resubscribeDelayMs * 2, MAX_RESUBSCRIBE_DELAY_MS);
+        System.err.println("Replica " + collectionName() + ": resubscribing in " + delay + " ms");
+        resubscribe = RESUBSCRIBER.schedule(() -> {
+            synchronized (this) {
+                resubscribe = null;
+            }
+            start();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.BrandDocument;
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Vehicle fitment index answering "parts that fit a 2019 Honda CB650R".
+ * <p>
+ * Brand model year ranges are bucketed per production year, so "which models were
+ * built in year Y" is a single lookup. Products are indexed by the models listed in
+ * {@code compatibleModels}, keyed by brand and model; an entry may narrow its own
+ * years, e.g. "CB650R (2019-2021)". Both sides are fed by the brand and product replicas.
+ */
+@Component
+public class FitmentIndex {
+
+    // "CB650R (2019-2021)", "CB650R 2019-", "CB650R (2019)" - optional years after the model name
+    private static final Pattern MODEL_WITH_YEARS =
+            Pattern.compile("^(.*?)[\\s(]+(\\d{4})(\\s*-\\s*(\\d{4})?)?\\)?\\s*$");
+    // Four digits outside this range are part of the name, e.g. "Monster 1200"
+    private static final int MIN_MODEL_YEAR = 1900;
+    private static final int MAX_MODEL_YEAR = 2100;
+    private static final String ANY_BRAND = "*";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Brand side: brandKey -> modelKey -> model, and year -> models in production that year
+    private final Map<String, Map<String, VehicleModel>> modelsByBrand = new HashMap<>();
+    private final Map<Integer, List<VehicleModel>> modelsByYear = new HashMap<>();
+
+    // Product side: "brandKey|modelKey" -> productId -> year range the product declares (or null)
+    private final Map<String, Map<String, int[]>> productsByModel = new HashMap<>();
+    private final Map<String, List<String>> modelKeysByProduct = new HashMap<>();
+    private final Map<String, ProductDocument> products = new HashMap<>();
+
+    public FitmentIndex(BrandCatalogReplica brandReplica, ProductCatalogReplica productReplica) {
+        brandReplica.addListener((upserted, removed, initialLoad) -> rebuildModels(brandReplica.values()));
+        productReplica.addListener(this::applyProductChanges);
+    }
+
+    /**
+     * A brand model with its production years; {@code yearTo} of 0 means still in production.
+     */
+    public static class VehicleModel {
+        private final String brand;
+        private final String brandKey;
+        private final BrandDocument.ModelInfo info;
+
+        VehicleModel(String brand, BrandDocument.ModelInfo info) {
+            this.brand = brand;
+            this.brandKey = normalize(brand);
+            this.info = info;
+        }
+
+        public String getBrand() {
+            return brand;
+        }
+
+        public String getName() {
+            return info.getName();
+        }
+
+        public int getYearFrom() {
+            return info.getYearFrom();
+        }
+
+        public int getYearTo() {
+            return info.getYearTo();
+        }
+
+        public String getEngineType() {
+            return info.getEngineType();
+        }
+
+        public int getDisplacement() {
+            return info.getDisplacement();
+        }
+
+        boolean builtIn(int year) {
+            return year >= info.getYearFrom() && (info.getYearTo() == 0 || year <= info.getYearTo());
+        }
+    }
+
+    public void rebuildModels(Collection<BrandDocument> brands) {
+        Map<String, Map<String, VehicleModel>> byBrand = new HashMap<>();
+        Map<Integer, List<VehicleModel>> byYear = new HashMap<>();
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        for (BrandDocument brand : brands) {
+            if (!brand.isActive() || brand.getName() == null || brand.getModels() == null) {
+                continue;
+            }
+            for (BrandDocument.ModelInfo info : brand.getModels()) {
+                if (info.getName() == null) {
+                    continue;
+                }
+                VehicleModel model = new VehicleModel(brand.getName(), info);
+                byBrand.computeIfAbsent(model.brandKey, k -> new HashMap<>()).put(normalize(info.getName()), model);
+                int lastYear = info.getYearTo() == 0 ? currentYear : info.getYearTo();
+                for (int year = info.getYearFrom(); year > 0 && year <= lastYear; year++) {
+                    byYear.computeIfAbsent(year, k -> new ArrayList<>()).add(model);
+                }
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            modelsByBrand.clear();
+            modelsByBrand.putAll(byBrand);
+            modelsByYear.clear();
+            modelsByYear.putAll(byYear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void applyProductChanges(Collection<ProductDocument> upserted, Collection<String> removed,
+            boolean initialLoad) {
+        lock.writeLock().lock();
+        try {
+            if (initialLoad) {
+                productsByModel.clear();
+                modelKeysByProduct.clear();
+                products.clear();
+            }
+            removed.forEach(this::removeProductLocked);
+            for (ProductDocument product : upserted) {
+                removeProductLocked(product.getId());
+                if (product.isActive()) {
+                    addProductLocked(product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brand models matching the query. Model and year are optional filters.
+     */
+    public List<VehicleModel> findModels(String brand, String model, Integer year) {
+        String brandKey = normalize(brand);
+        String modelKey = normalize(model);
+        lock.readLock().lock();
+        try {
+            List<VehicleModel> candidates;
+            if (year != null) {
+                candidates = modelsByYear.getOrDefault(year, Collections.emptyList());
+            } else if (brandKey != null) {
+                candidates = new ArrayList<>(modelsByBrand.getOrDefault(brandKey, Collections.emptyMap()).values());
+            } else {
+                candidates = new ArrayList<>();
+                modelsByBrand.values().forEach(models -> candidates.addAll(models.values()));
+            }
+            List<VehicleModel> result = new ArrayList<>();
+            for (VehicleModel candidate : candidates) {
+                if ((brandKey == null || brandKey.equals(candidate.brandKey))
+                        && (modelKey == null || modelKey.equals(normalize(candidate.getName())))) {
+                    result.add(candidate);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Active products fitting the given vehicle, optionally limited to one category.
+     * If the brand catalogue doesn't know the model, the product declarations alone decide.
+     */
+    public List<ProductDocument> findFittingProducts(String brand, String model, Integer year, String category) {
+        String brandKey = normalize(brand);
+        String modelKey = normalize(model);
+        if (brandKey == null && modelKey == null) {
+            throw new IllegalArgumentException("brand or model is required");
+        }
+
+        List<VehicleModel> models = findModels(brand, model, year);
+        lock.readLock().lock();
+        try {
+            // brandKey|modelKey pairs to look up, each with the year to check product ranges against
+            Set<String> keys = new LinkedHashSet<>();
+            for (VehicleModel vehicle : models) {
+                keys.add(vehicle.brandKey + "|" + normalize(vehicle.getName()));
+            }
+            boolean modelKnown = modelKey != null && modelsByBrand.values().stream()
+                    .anyMatch(byModel -> byModel.containsKey(modelKey));
+            if (modelKey != null && !modelKnown) {
+                keys.add((brandKey != null ? brandKey : ANY_BRAND) + "|" + modelKey);
+            }
+
+            Set<String> matched = new LinkedHashSet<>();
+            for (String key : keys) {
+                String keyModel = key.substring(key.indexOf('|') + 1);
+                collectFits(matched, key, year);
+                // Products that list the model without naming a brand fit every brand's model
+                collectFits(matched, ANY_BRAND + "|" + keyModel, year);
+            }
+
+            List<ProductDocument> result = new ArrayList<>();
+            for (String productId : matched) {
+                ProductDocument product = products.get(productId);
+                if (category == null || category.equalsIgnoreCase(product.getCategory())) {
+                    result.add(product);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collectFits(Set<String> matched, String key, Integer year) {
+        Map<String, int[]> fits = productsByModel.get(key);
+        if (fits == null) {
+            return;
+        }
+        for (Map.Entry<String, int[]> fit : fits.entrySet()) {
+            int[] years = fit.getValue();
+            if (year == null || years == null || (year >= years[0] && year <= years[1])) {
+                matched.add(fit.getKey());
+            }
+        }
+    }
+
+    private void addProductLocked(ProductDocument product) {
+        if (product.getCompatibleModels() == null || product.getCompatibleModels().isEmpty()) {
+            return;
+        }
+        String brandKey = normalize(product.getBrand());
+        List<String> keys = new ArrayList<>();
+        for (String entry : product.getCompatibleModels()) {
+            if (entry == null) {
+                continue;
+            }
+            String modelName = entry;
+            int[] years = null;
+            Matcher matcher = MODEL_WITH_YEARS.matcher(entry);
+            if (matcher.matches() && isModelYear(Integer.parseInt(matcher.group(2)))) {
+                modelName = matcher.group(1);
+                int from = Integer.parseInt(matcher.group(2));
+                int to;
+                if (matcher.group(3) == null) {
+                    to = from; // a single year
+                } else {
+                    to = matcher.group(4) != null ? Integer.parseInt(matcher.group(4)) : Integer.MAX_VALUE;
+                }
+                years = new int[] { from, to };
+            }
+            String modelKey = normalize(modelName);
+            if (modelKey == null) {
+                continue;
+            }
+            String key = (brandKey != null ? brandKey : ANY_BRAND) + "|" + modelKey;
+            productsByModel.computeIfAbsent(key, k -> new HashMap<>()).put(product.getId(), years);
+            keys.add(key);
+        }
+        modelKeysByProduct.put(product.getId(), keys);
+        products.put(product.getId(), product);
+    }
+
+    private void removeProductLocked(String productId) {
+        products.remove(productId);
+        List<String> keys = modelKeysByProduct.remove(productId);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            Map<String, int[]> fits = productsByModel.get(key);
+            if (fits != null) {
+                fits.remove(productId);
+                if (fits.isEmpty()) {
+                    productsByModel.remove(key);
+                }
+            }
+        }
+    }
+
+    private static boolean isModelYear(int year) {
+        return year >= MIN_MODEL_YEAR && year <= MAX_MODEL_YEAR;
+    }
+
+    /**
+     * Lower-case letters and digits only, so "Ninja ZX-6R" and "ninja zx6r" match.
+     */
+    static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String key = value.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]", "");
+        return key.isEmpty() ? null : key;
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.OrderDocument;
+import com.example.spareparts.repository.firestore.OrderFirestoreRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Item-to-item co-occurrence counts over order baskets: how often two products were
+ * bought in the same order. Backs "frequently bought together".
+ * <p>
+ * Product ids are interned to ints and every product has one sparse row of
+ * (other product, count) pairs in primitive arrays, so only pairs that were actually
+ * bought together cost memory. Orders placed through this instance are counted as they
+ * are created; history (and orders placed by other instances) is read with one scan at
+ * startup. Cancelled orders are not counted.
+ */
+@Component
+public class FrequentlyBoughtTogetherIndex {
+
+    /**
+     * Distinct products of one order that are paired; a basket of n costs n^2 updates.
+     */
+    static final int MAX_BASKET = 50;
+
+    private static final int SCAN_PAGE_SIZE = 500;
+
+    private final OrderFirestoreRepository orderRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<CountRow> rows = new ArrayList<>();
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "co-occurrence-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean loaded;
+
+    public FrequentlyBoughtTogetherIndex(OrderFirestoreRepository orderRepository) {
+        this.orderRepository = orderRepository;
+    }
+
+    /**
+     * Counts the orders created before startup in the background. Orders created from
+     * now on are counted by {@link #recordOrder}, so nothing is counted twice.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long startedAt = System.currentTimeMillis();
+        loadExecutor.execute(() -> {
+            try {
+                orderRepository.scanItemsCreatedBefore(startedAt, SCAN_PAGE_SIZE, this::recordOrder);
+                loaded = true;
+            } catch (Exception e) {
+                System.err.println("Co-occurrence index: could not scan order history - " + e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Adds the pairs of a new order to the counts.
+     */
+    public void recordOrder(OrderDocument order) {
+        apply(order, 1);
+    }
+
+    /**
+     * Takes the pairs of an order that is being cancelled back out of the counts.
+     */
+    public void removeOrder(OrderDocument order) {
+        apply(order, -1);
+    }
+
+    /**
+     * Up to {@code k} product ids most often bought together with the given product,
+     * by count descending, then id.
+     */
+    public List<String> topK(String productId, int k) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinals.get(productId);
+            if (ordinal == null || k <= 0) {
+                return Collections.emptyList();
+            }
+            CountRow row = rows.get(ordinal);
+            // Min-heap of the best k seen so far; the root is the weakest
+            Comparator<long[]> weakestFirst = Comparator.<long[]>comparingLong(e -> e[1])
+                    .thenComparing(e -> ids.get((int) e[0]), Comparator.reverseOrder());
+            PriorityQueue<long[]> best = new PriorityQueue<>(k + 1, weakestFirst);
+            for (int i = 0; i < row.keys.length; i++) {
+                if (row.keys[i] == CountRow.EMPTY || row.counts[i] <= 0) {
+                    continue;
+                }
+                best.add(new long[] {row.keys[i], row.counts[i]});
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+            String[] result = new String[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = ids.get((int) best.poll()[0]);
+            }
+            return Arrays.asList(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Times the two products were bought in the same order.
+     */
+    public int count(String productId, String otherId) {
+        lock.readLock().lock();
+        try {
+            Integer a = ordinals.get(productId);
+            Integer b = ordinals.get(otherId);
+            return a == null || b == null ? 0 : rows.get(a).get(b);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of products that were ordered together with at least one other product.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(OrderDocument order, int delta) {
+        if (order == null || order.getItems() == null || "CANCELLED".equals(order.getStatus())) {
+            return;
+        }
+        Set<String> basket = new LinkedHashSet<>();
+        for (OrderDocument.OrderItemDocument item : order.getItems()) {
+            if (item.getProductId() != null && basket.size() < MAX_BASKET) {
+                basket.add(item.getProductId());
+            }
+        }
+        if (basket.size() < 2) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int[] members = new int[basket.size()];
+            int n = 0;
+            for (String productId : basket) {
+                members[n++] = ordinalLocked(productId);
+            }
+            for (int a : members) {
+                CountRow row = rows.get(a);
+                for (int b : members) {
+                    if (a != b) {
+                        row.add(b, delta);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int ordinalLocked(String productId) {
+        Integer ordinal = ordinals.get(productId);
+        if (ordinal == null) {
+            ordinal = ids.size();
+            ordinals.put(productId, ordinal);
+            ids.add(productId);
+            rows.add(new CountRow());
+        }
+        return ordinal;
+    }
+
+    /**
+     * Sparse int-to-int counts with open addressing (linear probing) over two parallel arrays.
+     */
+    static final class CountRow {
+        static final int EMPTY = -1;
+
+        private int[] keys = newKeys(4);
+        private int[] counts = new int[4];
+        private int size;
+
+        int get(int key) {
+            int slot = find(keys, key);
+            return keys[slot] == key ? counts[slot] : 0;
+        }
+
+        void add(int key, int delta) {
+            int slot = find(keys, key);
+            if (keys[slot] == key) {
+                counts[slot] += delta;
+                return;
+            }
+            if (delta <= 0) {
+                return;
+            }
+            keys[slot] = key;
+            counts[slot] = delta;
+            // Keep the load factor at or below 3/4
+            if (++size * 4 > keys.length * 3) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = newKeys(oldKeys.length * 2);
+            counts = new int[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = find(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int find(int[] keys, int key) {
+            int mask = keys.length - 1;
+            int hash = key * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int[] newKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import com.example.spareparts.repository.firestore.ProductFirestoreRepository;
+import com.google.cloud.firestore.EventListener;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory replica of the products collection.
+ * Serves the public catalog reads that used to query Firestore on every request.
+ */
+@Component
+public class ProductCatalogReplica extends FirestoreCollectionReplica<ProductDocument> {
+
+    private final ProductFirestoreRepository productRepository;
+
+    public ProductCatalogReplica(ProductFirestoreRepository productRepository,
+            List<ReplicaListener<ProductDocument>> listeners) {
+        super(listeners);
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    protected ListenerRegistration subscribe(EventListener<QuerySnapshot> listener) {
+        return productRepository.listen(listener);
+    }
+
+    @Override
+    protected Class<ProductDocument> documentType() {
+        return ProductDocument.class;
+    }
+
+    @Override
+    protected String collectionName() {
+        return "products";
+    }
+
+    public Optional<ProductDocument> findById(String id) {
+        return get(id);
+    }
+
+    public List<ProductDocument> findAllActive() {
+        return values().stream()
+                .filter(ProductDocument::isActive)
+                .collect(Collectors.toList());
+    }
+
+    public List<ProductDocument> findByCategory(String category) {
+        return values().stream()
+                .filter(p -> p.isActive() && category.equals(p.getCategory()))
+                .collect(Collectors.toList());
+    }
+
+    public List<ProductDocument> findByBrand(String brand) {
+        return values().stream()
+                .filter(p -> p.isActive() && brand.equals(p.getBrand()))
+                .collect(Collectors.toList());
+    }
+}
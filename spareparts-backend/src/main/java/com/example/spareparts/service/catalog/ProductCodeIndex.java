@@ -0,0 +1,88 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash index from SKU and barcode to active product, for counter/POS scanning.
+ * Kept in sync by {@link ProductCatalogReplica}; lookups are a single map probe.
+ * Several products may share a normalized code; each is tracked, and lookups return
+ * the one with the lowest id, so removing one leaves the others findable.
+ */
+@Component
+public class ProductCodeIndex implements ReplicaListener<ProductDocument> {
+
+    private final Map<String, NavigableMap<String, ProductDocument>> productsByCode = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> codesByProduct = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized Optional<ProductDocument> lookup(String code) {
+        String key = normalize(code);
+        if (key == null) {
+            return Optional.empty();
+        }
+        NavigableMap<String, ProductDocument> owners = productsByCode.get(key);
+        return owners == null ? Optional.empty() : Optional.of(owners.firstEntry().getValue());
+    }
+
+    @Override
+    public synchronized void onReplicaChanged(Collection<ProductDocument> upserted, Collection<String> removed,
+            boolean initialLoad) {
+        if (initialLoad) {
+            productsByCode.clear();
+            codesByProduct.clear();
+        }
+        removed.forEach(this::removeCodes);
+        for (ProductDocument product : upserted) {
+            removeCodes(product.getId());
+            if (product.isActive()) {
+                addCodes(product);
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * Codes are matched case-insensitively and ignoring whitespace, as scanners and
+     * hand-typed SKUs differ in both.
+     */
+    public static String normalize(String code) {
+        if (code == null) {
+            return null;
+        }
+        String key = code.replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+        return key.isEmpty() ? null : key;
+    }
+
+    private void addCodes(ProductDocument product) {
+        List<String> codes = new ArrayList<>(2);
+        for (String code : new String[] { product.getSku(), product.getBarcode() }) {
+            String key = normalize(code);
+            if (key != null && !codes.contains(key)) {
+                productsByCode.computeIfAbsent(key, k -> new TreeMap<>()).put(product.getId(), product);
+                codes.add(key);
+            }
+        }
+        codesByProduct.put(product.getId(), codes);
+    }
+
+    private void removeCodes(String productId) {
+        List<String> codes = codesByProduct.remove(productId);
+        if (codes == null) {
+            return;
+        }
+        for (String code : codes) {
+            productsByCode.computeIfPresent(code, (k, owners) -> {
+                owners.remove(productId);
+                return owners.isEmpty() ? null : owners;
+            });
+        }
+    }
+}
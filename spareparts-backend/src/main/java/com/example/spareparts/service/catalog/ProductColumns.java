@@ -0,0 +1,317 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Columnar copy of the active catalogue for scans and aggregations: price, stock,
+ * reorder level and rating in primitive arrays, category and brand as dictionary codes.
+ * <p>
+ * Rows are kept dense in {@code [0, size)} (a removed row is replaced by the last one),
+ * so every aggregation is a straight loop over primitive arrays with no boxing, no
+ * per-row objects and no dead-row checks. Kept in sync by {@link ProductCatalogReplica}.
+ */
+@Component
+public class ProductColumns implements ReplicaListener<ProductDocument> {
+
+    public static final String UNCATEGORIZED = "Uncategorized";
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> rows = new HashMap<>();
+    private final List<String> categories = new ArrayList<>();
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    private final List<String> brands = new ArrayList<>();
+    private final Map<String, Integer> brandCodes = new HashMap<>();
+    private ProductDocument[] products = new ProductDocument[INITIAL_CAPACITY];
+    private double[] price = new double[INITIAL_CAPACITY];
+    private int[] stock = new int[INITIAL_CAPACITY];
+    private int[] reorderLevel = new int[INITIAL_CAPACITY];
+    private double[] rating = new double[INITIAL_CAPACITY];
+    private int[] category = new int[INITIAL_CAPACITY];
+    private int[] brand = new int[INITIAL_CAPACITY];
+    private int size;
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void rebuild(Collection<ProductDocument> allProducts) {
+        lock.writeLock().lock();
+        try {
+            rows.clear();
+            Arrays.fill(products, 0, size, null);
+            size = 0;
+            for (ProductDocument product : allProducts) {
+                if (product.getId() != null && product.isActive()) {
+                    setLocked(product);
+                }
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onReplicaChanged(Collection<ProductDocument> upserted, Collection<String> removed,
+            boolean initialLoad) {
+        if (initialLoad) {
+            rebuild(upserted);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removed.forEach(this::removeLocked);
+            for (ProductDocument product : upserted) {
+                if (product.isActive()) {
+                    setLocked(product);
+                } else {
+                    removeLocked(product.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inventory value, stock distribution, average rating and per-category and per-brand
+     * counts in one pass.
+     *
+     * @param lowStockThreshold products with stock in {@code [1, threshold]} count as low stock
+     */
+    public Inventory inventory(int lowStockThreshold) {
+        lock.readLock().lock();
+        try {
+            double value = 0;
+            int outOfStock = 0;
+            int lowStock = 0;
+            int belowReorder = 0;
+            double ratingSum = 0;
+            int rated = 0;
+            long[] perCategory = new long[categories.size()];
+            long[] perBrand = new long[brands.size()];
+            long uncategorized = 0;
+            for (int i = 0; i < size; i++) {
+                int s = stock[i];
+                value += price[i] * s;
+                outOfStock += s <= 0 ? 1 : 0;
+                lowStock += s > 0 && s <= lowStockThreshold ? 1 : 0;
+                belowReorder += s <= reorderLevel[i] ? 1 : 0;
+                ratingSum += rating[i];
+                rated += rating[i] > 0 ? 1 : 0;
+                int code = category[i];
+                if (code >= 0) {
+                    perCategory[code]++;
+                } else {
+                    uncategorized++;
+                }
+                if (brand[i] >= 0) {
+                    perBrand[brand[i]]++;
+                }
+            }
+            Map<String, Long> byCategory = decode(perCategory, categories);
+            if (uncategorized > 0) {
+                byCategory.merge(UNCATEGORIZED, uncategorized, Long::sum);
+            }
+            return new Inventory(size, value, size - outOfStock - lowStock, lowStock, outOfStock, belowReorder,
+                    rated > 0 ? ratingSum / rated : 0, byCategory, decode(perBrand, brands));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Active products with stock at or below the threshold, lowest stock first (then id),
+     * the order of the equivalent Firestore query.
+     */
+    public List<ProductDocument> findLowStock(int threshold) {
+        lock.readLock().lock();
+        try {
+            List<ProductDocument> result = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (stock[i] <= threshold) {
+                    result.add(products[i]);
+                }
+            }
+            result.sort(Comparator.comparingInt(ProductDocument::getStock).thenComparing(ProductDocument::getId));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countLowStock(int threshold) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                count += stock[i] <= threshold ? 1 : 0;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setLocked(ProductDocument product) {
+        Integer existing = rows.get(product.getId());
+        int row;
+        if (existing != null) {
+            row = existing;
+        } else {
+            if (size == price.length) {
+                grow(size * 2);
+            }
+            row = size++;
+            rows.put(product.getId(), row);
+        }
+        products[row] = product;
+        price[row] = product.getPrice();
+        stock[row] = product.getStock();
+        reorderLevel[row] = product.getReorderLevel();
+        rating[row] = product.getAverageRating();
+        category[row] = encode(product.getCategory(), categories, categoryCodes);
+        brand[row] = encode(product.getBrand(), brands, brandCodes);
+    }
+
+    private void removeLocked(String productId) {
+        Integer row = rows.remove(productId);
+        if (row == null) {
+            return;
+        }
+        int last = --size;
+        if (row != last) {
+            products[row] = products[last];
+            price[row] = price[last];
+            stock[row] = stock[last];
+            reorderLevel[row] = reorderLevel[last];
+            rating[row] = rating[last];
+            category[row] = category[last];
+            brand[row] = brand[last];
+            rows.put(products[row].getId(), row);
+        }
+        products[last] = null;
+    }
+
+    private void grow(int capacity) {
+        products = Arrays.copyOf(products, capacity);
+        price = Arrays.copyOf(price, capacity);
+        stock = Arrays.copyOf(stock, capacity);
+        reorderLevel = Arrays.copyOf(reorderLevel, capacity);
+        rating = Arrays.copyOf(rating, capacity);
+        category = Arrays.copyOf(category, capacity);
+        brand = Arrays.copyOf(brand, capacity);
+    }
+
+    private static Map<String, Long> decode(long[] counts, List<String> dictionary) {
+        Map<String, Long> byValue = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                byValue.put(dictionary.get(code), counts[code]);
+            }
+        }
+        return byValue;
+    }
+
+    /**
+     * Dictionary code of the value, assigning the next one on first sight; -1 for none.
+     * Codes are never reused, and the dictionaries only grow with distinct names.
+     */
+    private static int encode(String value, List<String> dictionary, Map<String, Integer> codes) {
+        if (value == null) {
+            return -1;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * Result of {@link #inventory(int)}.
+     */
+    public static class Inventory {
+        private final int productCount;
+        private final double inventoryValue;
+        private final int inStock;
+        private final int lowStock;
+        private final int outOfStock;
+        private final int belowReorderLevel;
+        private final double averageRating;
+        private final Map<String, Long> productsByCategory;
+        private final Map<String, Long> productsByBrand;
+
+        Inventory(int productCount, double inventoryValue, int inStock, int lowStock, int outOfStock,
+                int belowReorderLevel, double averageRating, Map<String, Long> productsByCategory,
+                Map<String, Long> productsByBrand) {
+            this.productCount = productCount;
+            this.inventoryValue = inventoryValue;
+            this.inStock = inStock;
+            this.lowStock = lowStock;
+            this.outOfStock = outOfStock;
+            this.belowReorderLevel = belowReorderLevel;
+            this.averageRating = averageRating;
+            this.productsByCategory = productsByCategory;
+            this.productsByBrand = productsByBrand;
+        }
+
+        public int getProductCount() {
+            return productCount;
+        }
+
+        public double getInventoryValue() {
+            return inventoryValue;
+        }
+
+        public int getInStock() {
+            return inStock;
+        }
+
+        public int getLowStock() {
+            return lowStock;
+        }
+
+        public int getOutOfStock() {
+            return outOfStock;
+        }
+
+        public int getBelowReorderLevel() {
+            return belowReorderLevel;
+        }
+
+        /**
+         * Mean rating over products that have been rated.
+         */
+        public double getAverageRating() {
+            return averageRating;
+        }
+
+        public Map<String, Long> getProductsByCategory() {
+            return productsByCategory;
+        }
+
+        public Map<String, Long> getProductsByBrand() {
+            return productsByBrand;
+        }
+    }
+}
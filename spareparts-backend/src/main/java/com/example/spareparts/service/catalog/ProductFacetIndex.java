@@ -0,0 +1,314 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.dto.FacetSearchResponse;
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitset index for faceted browsing by category, brand, price band, rating and stock status.
+ * <p>
+ * Every active product gets a small integer ordinal, and every facet value keeps a
+ * {@link BitSet} of the ordinals that have it. Values of one facet are OR-ed, facets are
+ * AND-ed, and counts are bit cardinalities, so combining filters never touches Firestore.
+ * Ordinals of removed products are reused to keep the bitsets dense.
+ */
+@Component
+public class ProductFacetIndex implements ReplicaListener<ProductDocument> {
+
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    public static final String PRICE = "price";
+    public static final String RATING = "rating";
+    public static final String STOCK = "stock";
+    public static final List<String> FACETS = List.of(CATEGORY, BRAND, PRICE, RATING, STOCK);
+
+    // Upper bounds of the price bands; the last band is open-ended
+    private static final int[] PRICE_BAND_LIMITS = { 25, 50, 100, 250 };
+    private static final List<String> PRICE_BANDS = priceBands();
+    // Rating bands are cumulative: a 4.5 star product is in "4+" and every band below it
+    private static final int[] RATING_THRESHOLDS = { 4, 3, 2, 1 };
+    private static final List<String> RATING_BANDS = List.of("4+", "3+", "2+", "1+");
+    private static final String IN_STOCK = "in_stock";
+    private static final String LOW_STOCK = "low_stock";
+    private static final String OUT_OF_STOCK = "out_of_stock";
+    private static final List<String> STOCK_BANDS = List.of(IN_STOCK, LOW_STOCK, OUT_OF_STOCK);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // facet -> value key -> ordinals of products with that value
+    private final Map<String, Map<String, BitSet>> postings = new HashMap<>();
+    // facet -> value key -> value as shown to shoppers
+    private final Map<String, Map<String, String>> labels = new HashMap<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<ProductDocument> products = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile boolean loaded;
+
+    public ProductFacetIndex() {
+        for (String facet : FACETS) {
+            postings.put(facet, new HashMap<>());
+            labels.put(facet, new HashMap<>());
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Bumped by every change to the index; results computed at one version are stale at the next.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public void rebuild(Collection<ProductDocument> allProducts) {
+        lock.writeLock().lock();
+        try {
+            postings.values().forEach(Map::clear);
+            labels.values().forEach(Map::clear);
+            ordinals.clear();
+            products.clear();
+            live.clear();
+            freeOrdinals.clear();
+            for (ProductDocument product : allProducts) {
+                if (product.getId() != null && product.isActive()) {
+                    addLocked(product);
+                }
+            }
+            version.incrementAndGet();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onReplicaChanged(Collection<ProductDocument> upserted, Collection<String> removed,
+            boolean initialLoad) {
+        if (initialLoad) {
+            rebuild(upserted);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removed.forEach(this::removeLocked);
+            for (ProductDocument product : upserted) {
+                removeLocked(product.getId());
+                if (product.isActive()) {
+                    addLocked(product);
+                }
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Active products matching every filtered facet, sorted by name, plus value counts per facet.
+     * Filter values within one facet are alternatives; values are matched case-insensitively.
+     */
+    public FacetSearchResponse<ProductDocument> query(Map<String, ? extends Collection<String>> filters,
+            int offset, int limit) {
+        for (String facet : filters.keySet()) {
+            if (!FACETS.contains(facet)) {
+                throw new IllegalArgumentException("Unknown facet: " + facet);
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            // One mask per filtered facet: the union of the selected values
+            Map<String, BitSet> masks = new HashMap<>();
+            for (Map.Entry<String, ? extends Collection<String>> filter : filters.entrySet()) {
+                if (filter.getValue() == null || filter.getValue().isEmpty()) {
+                    continue;
+                }
+                BitSet mask = new BitSet();
+                for (String value : filter.getValue()) {
+                    BitSet bits = postings.get(filter.getKey()).get(key(value));
+                    if (bits != null) {
+                        mask.or(bits);
+                    }
+                }
+                masks.put(filter.getKey(), mask);
+            }
+
+            BitSet matches = intersect(masks, null);
+
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            for (String facet : FACETS) {
+                // Counts for a facet ignore its own selection so alternatives stay visible
+                BitSet base = masks.containsKey(facet) ? intersect(masks, facet) : matches;
+                facets.put(facet, countValues(facet, base));
+            }
+
+            List<ProductDocument> items = new ArrayList<>(matches.cardinality());
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                items.add(products.get(ordinal));
+            }
+            items.sort(Comparator.comparing(p -> p.getName() != null ? p.getName() : "",
+                    String.CASE_INSENSITIVE_ORDER));
+            int from = Math.min(offset, items.size());
+            int to = Math.min(from + limit, items.size());
+            return new FacetSearchResponse<>(new ArrayList<>(items.subList(from, to)), items.size(),
+                    offset, limit, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet intersect(Map<String, BitSet> masks, String excludedFacet) {
+        BitSet result = (BitSet) live.clone();
+        for (Map.Entry<String, BitSet> mask : masks.entrySet()) {
+            if (!mask.getKey().equals(excludedFacet)) {
+                result.and(mask.getValue());
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Integer> countValues(String facet, BitSet base) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, BitSet> value : postings.get(facet).entrySet()) {
+            BitSet bits = (BitSet) value.getValue().clone();
+            bits.and(base);
+            int count = bits.cardinality();
+            if (count > 0) {
+                counts.put(labels.get(facet).get(value.getKey()), count);
+            }
+        }
+
+        List<String> order = bandOrder(facet);
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        if (order != null) {
+            entries.sort(Comparator.comparingInt(e -> order.indexOf(e.getKey())));
+        } else {
+            entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey(String.CASE_INSENSITIVE_ORDER)));
+        }
+        Map<String, Integer> ordered = new LinkedHashMap<>();
+        entries.forEach(e -> ordered.put(e.getKey(), e.getValue()));
+        return ordered;
+    }
+
+    private void addLocked(ProductDocument product) {
+        int ordinal = freeOrdinals.isEmpty() ? products.size() : freeOrdinals.pop();
+        if (ordinal == products.size()) {
+            products.add(product);
+        } else {
+            products.set(ordinal, product);
+        }
+        ordinals.put(product.getId(), ordinal);
+        live.set(ordinal);
+
+        for (Map.Entry<String, List<String>> facet : facetValues(product).entrySet()) {
+            for (String label : facet.getValue()) {
+                String key = key(label);
+                postings.get(facet.getKey()).computeIfAbsent(key, k -> new BitSet()).set(ordinal);
+                labels.get(facet.getKey()).putIfAbsent(key, label);
+            }
+        }
+    }
+
+    private void removeLocked(String productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal == null) {
+            return;
+        }
+        ProductDocument product = products.get(ordinal);
+        for (Map.Entry<String, List<String>> facet : facetValues(product).entrySet()) {
+            for (String label : facet.getValue()) {
+                String key = key(label);
+                BitSet bits = postings.get(facet.getKey()).get(key);
+                if (bits != null) {
+                    bits.clear(ordinal);
+                    if (bits.isEmpty()) {
+                        postings.get(facet.getKey()).remove(key);
+                        labels.get(facet.getKey()).remove(key);
+                    }
+                }
+            }
+        }
+        products.set(ordinal, null);
+        live.clear(ordinal);
+        freeOrdinals.push(ordinal);
+    }
+
+    private static Map<String, List<String>> facetValues(ProductDocument product) {
+        Map<String, List<String>> values = new HashMap<>();
+        if (product.getCategory() != null && !product.getCategory().isBlank()) {
+            values.put(CATEGORY, List.of(product.getCategory()));
+        }
+        if (product.getBrand() != null && !product.getBrand().isBlank()) {
+            values.put(BRAND, List.of(product.getBrand()));
+        }
+        values.put(PRICE, List.of(priceBand(product.getPrice())));
+
+        List<String> ratings = new ArrayList<>();
+        for (int i = 0; i < RATING_THRESHOLDS.length; i++) {
+            if (product.getAverageRating() >= RATING_THRESHOLDS[i]) {
+                ratings.add(RATING_BANDS.get(i));
+            }
+        }
+        values.put(RATING, ratings);
+
+        String stock = product.getStock() <= 0 ? OUT_OF_STOCK
+                : product.getStock() <= product.getReorderLevel() ? LOW_STOCK : IN_STOCK;
+        values.put(STOCK, List.of(stock));
+        return values;
+    }
+
+    private static String priceBand(double price) {
+        for (int i = 0; i < PRICE_BAND_LIMITS.length; i++) {
+            if (price < PRICE_BAND_LIMITS[i]) {
+                return PRICE_BANDS.get(i);
+            }
+        }
+        return PRICE_BANDS.get(PRICE_BANDS.size() - 1);
+    }
+
+    private static List<String> priceBands() {
+        List<String> bands = new ArrayList<>();
+        int lower = 0;
+        for (int limit : PRICE_BAND_LIMITS) {
+            bands.add(lower + "-" + limit);
+            lower = limit;
+        }
+        bands.add(lower + "+");
+        return List.copyOf(bands);
+    }
+
+    private static List<String> bandOrder(String facet) {
+        switch (facet) {
+            case PRICE:
+                return PRICE_BANDS;
+            case RATING:
+                return RATING_BANDS;
+            case STOCK:
+                return STOCK_BANDS;
+            default:
+                return null;
+        }
+    }
+
+    private static String key(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
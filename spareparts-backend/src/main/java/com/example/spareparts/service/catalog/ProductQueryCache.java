@@ -0,0 +1,72 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.dto.FacetSearchResponse;
+import com.example.spareparts.dto.ProductSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Result caches for text search and faceted browsing, keyed by the normalized query.
+ * Entries carry the version of the index that produced them (see {@link SearchResultCache}),
+ * so any product change invalidates them.
+ */
+@Component
+public class ProductQueryCache {
+
+    private final SearchResultCache<List<ProductSummary>> search;
+    private final SearchResultCache<FacetSearchResponse<ProductSummary>> facets;
+
+    public ProductQueryCache(@Value("${app.cache.search.max-entries:1000}") int maxEntries,
+            @Value("${app.cache.search.max-results:50000}") long maxResults) {
+        this.search = new SearchResultCache<>(maxEntries, maxResults, List::size);
+        this.facets = new SearchResultCache<>(maxEntries, maxResults,
+                response -> response.getItems().size()
+                        + response.getFacets().values().stream().mapToInt(Map::size).sum());
+    }
+
+    public SearchResultCache<List<ProductSummary>> search() {
+        return search;
+    }
+
+    public SearchResultCache<FacetSearchResponse<ProductSummary>> facets() {
+        return facets;
+    }
+
+    /**
+     * Cache key of a text search: its tokens, sorted. Every token must match, so order
+     * and case don't change the results ("Oil  Filter" and "filter oil" share an entry).
+     */
+    public static String searchKey(String query) {
+        List<String> tokens = ProductSearchIndex.tokenize(query);
+        Collections.sort(tokens);
+        return String.join(" ", tokens);
+    }
+
+    /**
+     * Cache key of a faceted query: facets and their values sorted and lower-cased, then the page.
+     */
+    public static String facetKey(Map<String, ? extends Collection<String>> filters, int offset, int limit) {
+        StringBuilder key = new StringBuilder();
+        for (String facet : new TreeMap<>(filters).keySet()) {
+            Collection<String> values = filters.get(facet);
+            if (values == null || values.isEmpty()) {
+                continue;
+            }
+            SortedSet<String> normalized = new TreeSet<>();
+            for (String value : values) {
+                normalized.add(value.trim().toLowerCase(Locale.ROOT));
+            }
+            key.append(facet).append('=').append(String.join(",", normalized)).append('&');
+        }
+        return key.append(offset).append('+').append(limit).toString();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("search", search.stats());
+        stats.put("facets", facets.stats());
+        return stats;
+    }
+}
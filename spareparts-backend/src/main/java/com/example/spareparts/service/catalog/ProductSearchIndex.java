@@ -0,0 +1,375 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over product name, description, category, brand and SKU.
+ * Every query token must match an indexed term (exactly or as a prefix); matches are
+ * ranked by field weight and term rarity, so no Firestore reads happen per search.
+ * A token with no exact or prefix match is corrected to the dictionary terms within a
+ * small edit distance ("sprak" -> "spark"); candidates come from a trigram index over
+ * the terms, so only a handful of terms are ever compared.
+ * Kept in sync by {@link ProductCatalogReplica}.
+ */
+@Component
+public class ProductSearchIndex implements ReplicaListener<ProductDocument> {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Field weights - a hit in the name counts far more than one in the description
+    private static final double NAME_WEIGHT = 5.0;
+    private static final double SKU_WEIGHT = 4.0;
+    private static final double BRAND_WEIGHT = 3.0;
+    private static final double CATEGORY_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    // A prefix hit ("brak" -> "brake") scores lower than an exact term hit
+    private static final double PREFIX_FACTOR = 0.6;
+    // A corrected term scores lower still, and less the further it is from the token
+    private static final double FUZZY_FACTOR = 0.4;
+    private static final int GRAM_SIZE = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> (productId -> weight)
+    private final NavigableMap<String, Map<String, Double>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> termsByProduct = new HashMap<>();
+    // trigram -> dictionary terms containing it, for fuzzy candidate lookup
+    private final Map<String, Set<String>> termsByGram = new HashMap<>();
+    private final Map<String, ProductDocument> products = new HashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Bumped by every change to the index; results computed at one version are stale at the next.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Replaces the whole index with the given products. Inactive products are skipped.
+     */
+    public void rebuild(Collection<ProductDocument> allProducts) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            termsByProduct.clear();
+            termsByGram.clear();
+            products.clear();
+            for (ProductDocument product : allProducts) {
+                if (product.getId() != null && product.isActive()) {
+                    addLocked(product);
+                }
+            }
+            version.incrementAndGet();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or re-indexes a single product. Inactive products are removed from the index.
+     */
+    public void upsert(ProductDocument product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            if (product.isActive()) {
+                addLocked(product);
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onReplicaChanged(Collection<ProductDocument> upserted, Collection<String> removed,
+            boolean initialLoad) {
+        if (initialLoad) {
+            rebuild(upserted);
+            return;
+        }
+        removed.forEach(this::remove);
+        upserted.forEach(this::upsert);
+    }
+
+    public List<ProductDocument> search(String query) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<String, Double> scores = null;
+            for (String token : queryTokens) {
+                Map<String, Double> tokenScores = scoreToken(token);
+                if (tokenScores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    // AND semantics: keep only products that matched every token
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + tokenScores.get(entry.getKey()));
+                    }
+                }
+            }
+
+            List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                if (byScore != 0) {
+                    return byScore;
+                }
+                return compareNames(products.get(a.getKey()), products.get(b.getKey()));
+            });
+
+            List<ProductDocument> results = new ArrayList<>(ranked.size());
+            for (Map.Entry<String, Double> entry : ranked) {
+                results.add(products.get(entry.getKey()));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cases the text and splits it on anything that is not a letter or digit.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<String, Double> scoreToken(String token) {
+        Map<String, Double> scores = new HashMap<>();
+        int totalProducts = Math.max(products.size(), 1);
+        SortedMap<String, Map<String, Double>> candidates = postings.subMap(token, token + Character.MAX_VALUE);
+        for (Map.Entry<String, Map<String, Double>> entry : candidates.entrySet()) {
+            Map<String, Double> productWeights = entry.getValue();
+            double idf = Math.log(1.0 + (double) totalProducts / productWeights.size());
+            double factor = entry.getKey().equals(token) ? 1.0 : PREFIX_FACTOR;
+            for (Map.Entry<String, Double> posting : productWeights.entrySet()) {
+                double score = posting.getValue() * idf * factor;
+                // A token counts once per product, using its best matching term
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        if (scores.isEmpty()) {
+            scoreFuzzy(token, scores);
+        }
+        return scores;
+    }
+
+    private void scoreFuzzy(String token, Map<String, Double> scores) {
+        int maxDistance = maxEditDistance(token.length());
+        if (maxDistance == 0) {
+            return;
+        }
+        int totalProducts = Math.max(products.size(), 1);
+        for (String term : fuzzyCandidates(token, maxDistance)) {
+            int distance = editDistance(token, term, maxDistance);
+            if (distance > maxDistance) {
+                continue;
+            }
+            Map<String, Double> productWeights = postings.get(term);
+            double idf = Math.log(1.0 + (double) totalProducts / productWeights.size());
+            double factor = FUZZY_FACTOR / distance;
+            for (Map.Entry<String, Double> posting : productWeights.entrySet()) {
+                scores.merge(posting.getKey(), posting.getValue() * idf * factor, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Terms of similar length sharing enough trigrams with the token to possibly be within
+     * the distance. An edit touches at most GRAM_SIZE grams and a transposition GRAM_SIZE + 1.
+     */
+    private Set<String> fuzzyCandidates(String token, int maxDistance) {
+        List<String> grams = grams(token);
+        int required = Math.max(1, grams.size() - (GRAM_SIZE + 1) * maxDistance);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            for (String term : termsByGram.getOrDefault(gram, Collections.emptySet())) {
+                if (Math.abs(term.length() - token.length()) <= maxDistance) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+        Set<String> candidates = new HashSet<>();
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            if (entry.getValue() >= required) {
+                candidates.add(entry.getKey());
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Short tokens get no correction, since almost every 2-letter word is one edit from another.
+     */
+    static int maxEditDistance(int length) {
+        if (length <= 2) {
+            return 0;
+        }
+        return length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Edit distance counting insertions, deletions, substitutions and adjacent
+     * transpositions. Gives up early and returns {@code max + 1} once every
+     * alignment is already further than {@code max}.
+     */
+    static int editDistance(String a, String b, int max) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private static List<String> grams(String term) {
+        // Padding gives short terms enough grams to find each other ("pda" -> "pad")
+        String padded = "^^" + term + "$$";
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + GRAM_SIZE <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private void addLocked(ProductDocument product) {
+        Map<String, Double> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        addField(weights, product.getCategory(), CATEGORY_WEIGHT);
+        addField(weights, product.getBrand(), BRAND_WEIGHT);
+        addField(weights, product.getSku(), SKU_WEIGHT);
+        if (product.getSku() != null) {
+            // Also index the SKU without separators so "ENGPST001" finds "ENG-PST-001"
+            String compactSku = String.join("", tokenize(product.getSku()));
+            if (!compactSku.isEmpty()) {
+                weights.merge(compactSku, SKU_WEIGHT, Double::sum);
+            }
+        }
+
+        String id = product.getId();
+        for (Map.Entry<String, Double> entry : weights.entrySet()) {
+            Map<String, Double> productWeights = postings.get(entry.getKey());
+            if (productWeights == null) {
+                productWeights = new HashMap<>();
+                postings.put(entry.getKey(), productWeights);
+                for (String gram : grams(entry.getKey())) {
+                    termsByGram.computeIfAbsent(gram, k -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+            productWeights.put(id, entry.getValue());
+        }
+        termsByProduct.put(id, weights.keySet());
+        products.put(id, product);
+    }
+
+    private void removeLocked(String productId) {
+        Set<String> terms = termsByProduct.remove(productId);
+        products.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<String, Double> productWeights = postings.get(term);
+            if (productWeights != null) {
+                productWeights.remove(productId);
+                if (productWeights.isEmpty()) {
+                    postings.remove(term);
+                    for (String gram : grams(term)) {
+                        Set<String> gramTerms = termsByGram.get(gram);
+                        if (gramTerms != null && gramTerms.remove(term) && gramTerms.isEmpty()) {
+                            termsByGram.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addField(Map<String, Double> weights, String text, double weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Double::sum);
+        }
+    }
+
+    private static int compareNames(ProductDocument a, ProductDocument b) {
+        String nameA = a.getName() != null ? a.getName() : "";
+        String nameB = b.getName() != null ? b.getName() : "";
+        return nameA.compareToIgnoreCase(nameB);
+    }
+}
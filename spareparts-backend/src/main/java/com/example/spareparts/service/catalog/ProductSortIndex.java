@@ -0,0 +1,256 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import com.example.spareparts.repository.firestore.PageCursor;
+import com.example.spareparts.repository.firestore.ProductSort;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sorted secondary indexes over active products, one per {@link ProductSort}, kept for the
+ * whole catalogue and again for each category and each brand. Entries are ordered exactly
+ * like the Firestore listing queries (value, then id), so a page - filtered to a category
+ * or brand or not - is a seek to the cursor or range bound plus a walk over the next k
+ * entries, instead of sorting or scanning the catalogue per request.
+ * <p>
+ * A range on one field with the order of another can't be served by one walk. Ranges of
+ * up to {@link #MAX_RANGE_RESORT} products are collected and ordered on each request;
+ * wider ones walk the sort order and skip products outside the range, which finds a page
+ * quickly because a wide range matches a large share of the entries walked.
+ * Kept in sync by {@link ProductCatalogReplica}.
+ */
+@Component
+public class ProductSortIndex implements ReplicaListener<ProductDocument> {
+
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    static final int MAX_RANGE_RESORT = 2000;
+
+    private static final Comparator<Entry> ORDER = (a, b) -> ProductSort.compareKeys(a.value, a.id, b.value, b.id);
+    private static final String ALL = "";
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // scope ("" or "category|X", "brand|X") -> sort -> entries
+    private final Map<String, Map<ProductSort, NavigableSet<Entry>>> indexes = new HashMap<>();
+    private final Map<String, ProductDocument> products = new HashMap<>();
+    private final int maxRangeResort;
+    private volatile boolean loaded;
+
+    public ProductSortIndex() {
+        this(MAX_RANGE_RESORT);
+    }
+
+    ProductSortIndex(int maxRangeResort) {
+        this.maxRangeResort = maxRangeResort;
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final String id;
+        private final ProductDocument product;
+
+        Entry(Object value, String id, ProductDocument product) {
+            this.value = value;
+            this.id = id;
+            this.product = product;
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void rebuild(Collection<ProductDocument> allProducts) {
+        lock.writeLock().lock();
+        try {
+            indexes.clear();
+            products.clear();
+            for (ProductDocument product : allProducts) {
+                if (product.getId() != null && product.isActive()) {
+                    addLocked(product);
+                }
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onReplicaChanged(Collection<ProductDocument> upserted, Collection<String> removed,
+            boolean initialLoad) {
+        if (initialLoad) {
+            rebuild(upserted);
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removed.forEach(this::removeLocked);
+            for (ProductDocument product : upserted) {
+                removeLocked(product.getId());
+                if (product.isActive()) {
+                    addLocked(product);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} products in the given order, starting after the cursor.
+     *
+     * @param rangeSort   the field {@code min}/{@code max} apply to (inclusive, either may be null),
+     *                    or null for no range
+     * @param filterField {@link #CATEGORY}, {@link #BRAND} or null; only products whose field
+     *                    equals {@code filterValue} are listed
+     */
+    public List<ProductDocument> page(ProductSort sort, boolean descending, PageCursor after,
+            ProductSort rangeSort, Double min, Double max, String filterField, String filterValue, int limit) {
+        String scope = scope(filterField, filterValue);
+        lock.readLock().lock();
+        try {
+            Map<ProductSort, NavigableSet<Entry>> scoped = indexes.get(scope);
+            if (scoped == null) {
+                return new ArrayList<>();
+            }
+            NavigableSet<Entry> view;
+            boolean checkRange = false;
+            if (rangeSort == null || rangeSort == sort) {
+                view = range(scoped.get(sort), min, max);
+            } else {
+                NavigableSet<Entry> ranged = range(scoped.get(rangeSort), min, max);
+                if (hasAtMost(ranged, maxRangeResort)) {
+                    // Narrow range on another field: collect its entries and order just those
+                    view = new TreeSet<>(ORDER);
+                    for (Entry entry : ranged) {
+                        view.add(new Entry(sort.valueOf(entry.product), entry.id, entry.product));
+                    }
+                } else {
+                    view = scoped.get(sort);
+                    checkRange = true;
+                }
+            }
+            if (descending) {
+                view = view.descendingSet();
+            }
+            if (after != null) {
+                view = view.tailSet(new Entry(after.getValue(), after.getId(), null), false);
+            }
+
+            List<ProductDocument> result = new ArrayList<>(limit);
+            for (Entry entry : view) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (!checkRange || within(rangeSort.valueOf(entry.product), min, max)) {
+                    result.add(entry.product);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static NavigableSet<Entry> range(NavigableSet<Entry> index, Double min, Double max) {
+        if (min == null && max == null) {
+            return index;
+        }
+        // Ids sort after "" and before any id with a leading U+FFFF, so these bounds cover every id
+        if (min == null) {
+            return index.headSet(new Entry(max, "\uffff", null), true);
+        }
+        if (max == null) {
+            return index.tailSet(new Entry(min, "", null), true);
+        }
+        return index.subSet(new Entry(min, "", null), true, new Entry(max, "\uffff", null), true);
+    }
+
+    private static boolean hasAtMost(NavigableSet<Entry> entries, int count) {
+        Iterator<Entry> it = entries.iterator();
+        for (int i = 0; i <= count; i++) {
+            if (!it.hasNext()) {
+                return true;
+            }
+            it.next();
+        }
+        return false;
+    }
+
+    // Same bounds as range(): inclusive, with missing values before every number
+    private static boolean within(Object value, Double min, Double max) {
+        return (min == null || ProductSort.compareKeys(value, "", min, "") >= 0)
+                && (max == null || ProductSort.compareKeys(value, "", max, "") <= 0);
+    }
+
+    private static String scope(String filterField, String filterValue) {
+        if (filterField == null) {
+            return ALL;
+        }
+        if (!CATEGORY.equals(filterField) && !BRAND.equals(filterField)) {
+            throw new IllegalArgumentException("Unsupported filter: " + filterField);
+        }
+        return filterField + "|" + filterValue;
+    }
+
+    private static List<String> scopes(ProductDocument product) {
+        List<String> scopes = new ArrayList<>(3);
+        scopes.add(ALL);
+        if (product.getCategory() != null) {
+            scopes.add(scope(CATEGORY, product.getCategory()));
+        }
+        if (product.getBrand() != null) {
+            scopes.add(scope(BRAND, product.getBrand()));
+        }
+        return scopes;
+    }
+
+    private void addLocked(ProductDocument product) {
+        for (String scope : scopes(product)) {
+            Map<ProductSort, NavigableSet<Entry>> scoped = indexes.computeIfAbsent(scope, k -> {
+                Map<ProductSort, NavigableSet<Entry>> sorts = new EnumMap<>(ProductSort.class);
+                for (ProductSort sort : ProductSort.values()) {
+                    sorts.put(sort, new TreeSet<>(ORDER));
+                }
+                return sorts;
+            });
+            for (Map.Entry<ProductSort, NavigableSet<Entry>> index : scoped.entrySet()) {
+                index.getValue().add(new Entry(index.getKey().valueOf(product), product.getId(), product));
+            }
+        }
+        products.put(product.getId(), product);
+    }
+
+    private void removeLocked(String productId) {
+        ProductDocument product = products.remove(productId);
+        if (product == null) {
+            return;
+        }
+        // Entries are located by the values and scopes they were indexed with
+        for (String scope : scopes(product)) {
+            Map<ProductSort, NavigableSet<Entry>> scoped = indexes.get(scope);
+            if (scoped == null) {
+                continue;
+            }
+            for (Map.Entry<ProductSort, NavigableSet<Entry>> index : scoped.entrySet()) {
+                index.getValue().remove(new Entry(index.getKey().valueOf(product), productId, null));
+            }
+            if (!scope.equals(ALL) && scoped.get(ProductSort.ID).isEmpty()) {
+                indexes.remove(scope);
+            }
+        }
+    }
+}
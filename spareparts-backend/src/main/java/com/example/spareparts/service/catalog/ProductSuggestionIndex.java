@@ -0,0 +1,136 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.BrandDocument;
+import com.example.spareparts.model.firestore.CategoryDocument;
+import com.example.spareparts.model.firestore.ProductDocument;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Typeahead suggestions over product names, SKUs, brands and categories.
+ * <p>
+ * Suggestions live in an immutable {@link SuggestionTrie} that readers use without
+ * locking. Replica changes only schedule a rebuild; bursts of changes (an import,
+ * the initial loads of three replicas) are coalesced into a single rebuild that
+ * swaps the trie in when done.
+ */
+@Component
+public class ProductSuggestionIndex {
+
+    public static final String TYPE_PRODUCT = "PRODUCT";
+    public static final String TYPE_SKU = "SKU";
+    public static final String TYPE_BRAND = "BRAND";
+    public static final String TYPE_CATEGORY = "CATEGORY";
+
+    private static final long REBUILD_DELAY_MS = 500;
+
+    private final ProductCatalogReplica productReplica;
+    private final BrandCatalogReplica brandReplica;
+    private final CategoryCatalogReplica categoryReplica;
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggestion-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private volatile SuggestionTrie trie = SuggestionTrie.empty();
+    private volatile long builtAt;
+
+    public ProductSuggestionIndex(ProductCatalogReplica productReplica, BrandCatalogReplica brandReplica,
+            CategoryCatalogReplica categoryReplica) {
+        this.productReplica = productReplica;
+        this.brandReplica = brandReplica;
+        this.categoryReplica = categoryReplica;
+        productReplica.addListener((upserted, removed, initialLoad) -> scheduleRebuild());
+        brandReplica.addListener((upserted, removed, initialLoad) -> scheduleRebuild());
+        categoryReplica.addListener((upserted, removed, initialLoad) -> scheduleRebuild());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return builtAt > 0;
+    }
+
+    public int size() {
+        return trie.size();
+    }
+
+    public List<SuggestionTrie.Suggestion> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, limit);
+    }
+
+    /**
+     * Rebuilds the trie from the current replica contents on the calling thread.
+     */
+    public void rebuild() {
+        rebuildPending.set(false);
+        trie = build(productReplica.values(), brandReplica.values(), categoryReplica.values());
+        builtAt = System.currentTimeMillis();
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(() -> {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    System.err.println("Suggestion index rebuild failed - " + e.getMessage());
+                }
+            }, REBUILD_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Products are weighted by review count as a popularity signal; brands and
+     * categories by the combined weight of their active products.
+     */
+    static SuggestionTrie build(Collection<ProductDocument> products, Collection<BrandDocument> brands,
+            Collection<CategoryDocument> categories) {
+        SuggestionTrie.Builder builder = new SuggestionTrie.Builder();
+        Map<String, Double> brandWeights = new HashMap<>();
+        Map<String, Double> categoryWeights = new HashMap<>();
+
+        for (ProductDocument product : products) {
+            if (!product.isActive()) {
+                continue;
+            }
+            double weight = 1.0 + product.getReviewCount();
+            if (product.getName() != null) {
+                builder.add(new SuggestionTrie.Suggestion(product.getName(), TYPE_PRODUCT, product.getId(), weight));
+            }
+            if (product.getSku() != null && !product.getSku().isBlank()) {
+                builder.add(new SuggestionTrie.Suggestion(product.getSku(), TYPE_SKU, product.getId(), weight));
+            }
+            if (product.getBrand() != null) {
+                brandWeights.merge(product.getBrand().toLowerCase(Locale.ROOT), weight, Double::sum);
+            }
+            if (product.getCategory() != null) {
+                categoryWeights.merge(product.getCategory().toLowerCase(Locale.ROOT), weight, Double::sum);
+            }
+        }
+
+        for (BrandDocument brand : brands) {
+            if (brand.isActive() && brand.getName() != null) {
+                double weight = brandWeights.getOrDefault(brand.getName().toLowerCase(Locale.ROOT), 0.0);
+                builder.add(new SuggestionTrie.Suggestion(brand.getName(), TYPE_BRAND, brand.getId(), weight));
+            }
+        }
+        for (CategoryDocument category : categories) {
+            if (category.isActive() && category.getName() != null) {
+                double weight = categoryWeights.getOrDefault(category.getName().toLowerCase(Locale.ROOT), 0.0);
+                builder.add(new SuggestionTrie.Suggestion(category.getName(), TYPE_CATEGORY, category.getId(), weight));
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.spareparts.service.catalog;
+
+import java.util.Collection;
+
+/**
+ * Receives changes applied to a {@link FirestoreCollectionReplica}.
+ * Callbacks arrive on the Firestore listener thread, one snapshot at a time.
+ */
+public interface ReplicaListener<T> {
+
+    /**
+     * @param upserted    documents added or modified by this snapshot
+     * @param removed     ids of documents deleted by this snapshot
+     * @param initialLoad true when {@code upserted} is the complete collection
+     */
+    void onReplicaChanged(Collection<T> upserted, Collection<String> removed, boolean initialLoad);
+}
@@ -0,0 +1,134 @@
+package com.example.spareparts.service.catalog;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded LRU cache of query results, limited both by entry count and by total weight
+ * (roughly, the number of results held).
+ * <p>
+ * Every entry is tagged with the version of the index it was computed from. A lookup
+ * at a newer version is a miss and drops the entry, and the first entry stored at a new
+ * version clears everything older, so a catalogue change invalidates the whole cache
+ * without anyone having to notify it.
+ */
+public class SearchResultCache<V> {
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final ToIntFunction<V> weigher;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long newestVersion = Long.MIN_VALUE;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public SearchResultCache(int maxEntries, long maxWeight, ToIntFunction<V> weigher) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long version;
+        private final int weight;
+
+        Entry(V value, long version, int weight) {
+            this.value = value;
+            this.version = version;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * The cached result for the key at this version, or the loader's result, which is then cached.
+     * The loader runs outside the cache lock, so concurrent misses on one key may both load.
+     */
+    public V get(String key, long version, Supplier<V> loader) {
+        V cached = getIfPresent(key, version);
+        if (cached != null) {
+            return cached;
+        }
+        V value = loader.get();
+        put(key, version, value);
+        return value;
+    }
+
+    public synchronized V getIfPresent(String key, long version) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.version < version) {
+            removeEntry(key, entry);
+            invalidations++;
+        }
+        if (entry == null || entry.version != version) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(String key, long version, V value) {
+        if (value == null || version < newestVersion || maxEntries <= 0) {
+            return;
+        }
+        if (version > newestVersion) {
+            invalidations += entries.size();
+            entries.clear();
+            weight = 0;
+            newestVersion = version;
+        }
+        int entryWeight = Math.max(1, weigher.applyAsInt(value));
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, version, entryWeight));
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entryWeight;
+
+        Iterator<Map.Entry<String, Entry<V>>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Counters since startup, for the catalog status endpoint.
+     */
+    public synchronized Map<String, Object> stats() {
+        long requests = hits + misses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("weight", weight);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", requests > 0 ? (double) hits / requests : 0.0);
+        stats.put("evictions", evictions);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    private void removeEntry(String key, Entry<V> entry) {
+        entries.remove(key);
+        weight -= entry.weight;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.spareparts.service.catalog;
+
+import java.util.*;
+
+/**
+ * Immutable radix trie for typeahead suggestions.
+ * Every node stores the best {@link #TOP_K} suggestions of its subtree, so a lookup
+ * is a walk down the prefix plus a copy of at most {@code TOP_K} references.
+ * Suggestions are reachable from the start of every word in their text, so "pads"
+ * suggests "EBC Sintered Brake Pads".
+ */
+public final class SuggestionTrie {
+
+    public static final int TOP_K = 10;
+
+    // Only the first few words of a long name start a key; later words rarely get typed first
+    private static final int MAX_WORD_STARTS = 6;
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingDouble(Suggestion::getWeight).reversed()
+            .thenComparingInt(s -> s.getText().length())
+            .thenComparing(Suggestion::getText, String.CASE_INSENSITIVE_ORDER);
+
+    private final Node root;
+    private final int size;
+
+    private SuggestionTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static SuggestionTrie empty() {
+        return new Builder().build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Best suggestions whose text has a word starting with the given prefix.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        Node node = root;
+        int position = 0;
+        while (position < key.length()) {
+            Node child = node.child(key.charAt(position));
+            if (child == null) {
+                return new ArrayList<>();
+            }
+            String label = child.label;
+            int remaining = key.length() - position;
+            if (remaining <= label.length()) {
+                // The prefix ends inside (or at the end of) this edge
+                if (!label.startsWith(key.substring(position))) {
+                    return new ArrayList<>();
+                }
+                node = child;
+                break;
+            }
+            if (!key.startsWith(label, position)) {
+                return new ArrayList<>();
+            }
+            position += label.length();
+            node = child;
+        }
+
+        int count = Math.min(limit, node.top.length);
+        return new ArrayList<>(Arrays.asList(node.top).subList(0, count));
+    }
+
+    /**
+     * Lower-case, with every run of non-alphanumeric characters collapsed to one space.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /**
+     * A suggestion shown in the search box.
+     */
+    public static class Suggestion {
+        private final String text;
+        private final String type; // PRODUCT, SKU, BRAND, CATEGORY
+        private final String id;
+        private final double weight;
+
+        public Suggestion(String text, String type, String id, double weight) {
+            this.text = text;
+            this.type = type;
+            this.id = id;
+            this.weight = weight;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+
+    public static class Builder {
+        private final BuildNode root = new BuildNode();
+        private int size;
+
+        public Builder add(Suggestion suggestion) {
+            String key = normalize(suggestion.getText());
+            if (key.isEmpty()) {
+                return this;
+            }
+            size++;
+            int wordStarts = 0;
+            for (int i = 0; i < key.length() && wordStarts < MAX_WORD_STARTS; i++) {
+                if (i == 0 || key.charAt(i - 1) == ' ') {
+                    insert(key.substring(i), suggestion);
+                    wordStarts++;
+                }
+            }
+            return this;
+        }
+
+        public SuggestionTrie build() {
+            return new SuggestionTrie(freeze("", root), size);
+        }
+
+        private void insert(String key, Suggestion suggestion) {
+            BuildNode node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new BuildNode());
+            }
+            node.terminals.add(suggestion);
+        }
+
+        private Node freeze(String label, BuildNode node) {
+            // Path compression: fold single-child chains without terminals into one edge
+            StringBuilder edge = new StringBuilder(label);
+            while (node.terminals.isEmpty() && node.children.size() == 1 && node != root) {
+                Map.Entry<Character, BuildNode> only = node.children.firstEntry();
+                edge.append(only.getKey());
+                node = only.getValue();
+            }
+
+            Node[] children = new Node[node.children.size()];
+            int i = 0;
+            for (Map.Entry<Character, BuildNode> entry : node.children.entrySet()) {
+                children[i++] = freeze(String.valueOf(entry.getKey()), entry.getValue());
+            }
+
+            // Best suggestions of the subtree: own terminals plus each child's best
+            Set<Suggestion> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+            candidates.addAll(node.terminals);
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            List<Suggestion> ranked = new ArrayList<>(candidates);
+            ranked.sort(RANKING);
+            Suggestion[] top = ranked.subList(0, Math.min(TOP_K, ranked.size())).toArray(new Suggestion[0]);
+            return new Node(edge.toString(), children, top);
+        }
+    }
+
+    private static class BuildNode {
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private final List<Suggestion> terminals = new ArrayList<>(1);
+    }
+
+    private static class Node {
+        private final String label;
+        private final char[] firstChars;
+        private final Node[] children;
+        private final Suggestion[] top;
+
+        Node(String label, Node[] children, Suggestion[] top) {
+            this.label = label;
+            this.children = children;
+            this.top = top;
+            this.firstChars = new char[children.length];
+            for (int i = 0; i < children.length; i++) {
+                firstChars[i] = children[i].label.charAt(0);
+            }
+        }
+
+        Node child(char c) {
+            // Children are built from a TreeMap, so first characters are sorted
+            int index = Arrays.binarySearch(firstChars, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.spareparts.service.firestore;
 
 import com.example.spareparts.model.firestore.*;
 import com.example.spareparts.repository.firestore.*;
+import com.example.spareparts.service.catalog.ProductColumns;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -16,15 +17,21 @@ public class AnalyticsFirestoreService {
     private final OrderFirestoreRepository orderRepository;
     private final UserFirestoreRepository userRepository;
     private final SupplierFirestoreRepository supplierRepository;
+    private final BrandFirestoreRepository brandRepository;
+    private final ProductColumns productColumns;
 
     public AnalyticsFirestoreService(ProductFirestoreRepository productRepository,
             OrderFirestoreRepository orderRepository,
             UserFirestoreRepository userRepository,
-            SupplierFirestoreRepository supplierRepository) {
+            SupplierFirestoreRepository supplierRepository,
+            BrandFirestoreRepository brandRepository,
+            ProductColumns productColumns) {
         this.productRepository = productRepository;
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.supplierRepository = supplierRepository;
+        this.brandRepository = brandRepository;
+        this.productColumns = productColumns;
     }
 
     public Map<String, Object> getDashboardSummary() {
@@ -32,10 +39,16 @@ public class AnalyticsFirestoreService {
             Map<String, Object> summary = new HashMap<>();
 
             // Product stats
-            List<ProductDocument> products = productRepository.findAllActive();
-            summary.put("totalProducts", products.size());
-            summary.put("lowStockProducts", productRepository.findLowStock(5).size());
-            summary.put("outOfStockProducts", products.stream().filter(p -> p.getStock() <= 0).count());
+            if (productColumns.isLoaded()) {
+                summary.put("totalProducts", productColumns.size());
+                summary.put("lowStockProducts", productColumns.countLowStock(5));
+                summary.put("outOfStockProducts", (long) productColumns.countLowStock(0));
+            } else {
+                List<ProductDocument> products = productRepository.findAllActive();
+                summary.put("totalProducts", products.size());
+                summary.put("lowStockProducts", productRepository.findLowStock(5).size());
+                summary.put("outOfStockProducts", products.stream().filter(p -> p.getStock() <= 0).count());
+            }
 
             // Order stats
             List<OrderDocument> orders = orderRepository.findAll();
@@ -61,7 +74,8 @@ public class AnalyticsFirestoreService {
             summary.put("recentOrders", orderRepository.findRecentOrders(5));
 
             // Low stock alerts
-            summary.put("lowStockAlerts", productRepository.findLowStock(10));
+            summary.put("lowStockAlerts", productColumns.isLoaded() ? productColumns.findLowStock(10)
+                    : productRepository.findLowStock(10));
 
             return summary;
         } catch (Exception e) {
@@ -104,34 +118,47 @@ public class AnalyticsFirestoreService {
 
     public Map<String, Object> getInventoryAnalytics() {
         try {
-            Map<String, Object> analytics = new HashMap<>();
-
-            List<ProductDocument> products = productRepository.findAllActive();
-
-            // Total inventory value
-            double inventoryValue = products.stream()
-                    .mapToDouble(p -> p.getPrice() * p.getStock())
-                    .sum();
-            analytics.put("inventoryValue", inventoryValue);
-
-            // Products by category
-            Map<String, Long> productsByCategory = new HashMap<>();
-            for (ProductDocument p : products) {
-                String category = p.getCategory() != null ? p.getCategory() : "Uncategorized";
-                productsByCategory.merge(category, 1L, Long::sum);
+            // One pass over the primitive columns instead of streams over documents. Before the
+            // replica has loaded, the same aggregation runs over a columnar copy of a direct read,
+            // so the response has the same shape either way.
+            ProductColumns columns = productColumns;
+            if (!columns.isLoaded()) {
+                columns = new ProductColumns();
+                columns.rebuild(productRepository.findAllActive());
             }
-            analytics.put("productsByCategory", productsByCategory);
+            ProductColumns.Inventory inventory = columns.inventory(10);
 
-            // Stock status distribution
+            Map<String, Object> analytics = new HashMap<>();
+            analytics.put("inventoryValue", inventory.getInventoryValue());
+            analytics.put("productsByCategory", inventory.getProductsByCategory());
+            analytics.put("productsByBrand", inventory.getProductsByBrand());
+            analytics.put("averageRating", inventory.getAverageRating());
+            analytics.put("belowReorderLevel", inventory.getBelowReorderLevel());
             Map<String, Long> stockStatus = new HashMap<>();
-            stockStatus.put("inStock", products.stream().filter(p -> p.getStock() > 10).count());
-            stockStatus.put("lowStock", products.stream().filter(p -> p.getStock() > 0 && p.getStock() <= 10).count());
-            stockStatus.put("outOfStock", products.stream().filter(p -> p.getStock() <= 0).count());
+            stockStatus.put("inStock", (long) inventory.getInStock());
+            stockStatus.put("lowStock", (long) inventory.getLowStock());
+            stockStatus.put("outOfStock", (long) inventory.getOutOfStock());
             analytics.put("stockStatus", stockStatus);
-
             return analytics;
         } catch (Exception e) {
             throw new RuntimeException("Error generating inventory analytics", e);
         }
     }
+
+    /**
+     * Re-seeds every collection counter from an aggregation count, correcting any drift.
+     */
+    public Map<String, Long> recountCollections() {
+        try {
+            Map<String, Long> counts = new HashMap<>();
+            counts.put("products", productRepository.recount());
+            counts.put("orders", orderRepository.recount());
+            counts.put("users", userRepository.recount());
+            counts.put("brands", brandRepository.recount());
+            counts.put("suppliers", supplierRepository.recount());
+            return counts;
+        } catch (Exception e) {
+            throw new RuntimeException("Error recounting collections", e);
+        }
+    }
 }
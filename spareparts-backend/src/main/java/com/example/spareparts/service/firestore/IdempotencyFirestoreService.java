@@ -0,0 +1,171 @@
+package com.example.spareparts.service.firestore;
+
+import com.example.spareparts.model.firestore.IdempotencyKeyDocument;
+import com.example.spareparts.repository.firestore.IdempotencyKeyFirestoreRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Runs mutating requests at most once per {@code Idempotency-Key}.
+ * <p>
+ * The first request with a key claims it together with a fingerprint of the operation
+ * and body, runs, and stores its response for {@code app.idempotency.ttl-hours}. A
+ * retry with the same key and body gets the stored response (marked with an
+ * {@code Idempotent-Replayed} header) without running again; one that arrives while the
+ * first is still running gets 409, and reusing a key for a different request gets 422.
+ * Server errors aren't stored, so the client can retry them with the same key.
+ * <p>
+ * A claim only holds the key for {@code app.idempotency.lease-seconds} until the response
+ * is stored, so a key whose request died with its instance frees up for a retry.
+ */
+@Service
+public class IdempotencyFirestoreService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyFirestoreRepository keyRepository;
+    private final ObjectMapper objectMapper;
+    private final long ttlMs;
+    private final long leaseMs;
+
+    public IdempotencyFirestoreService(IdempotencyKeyFirestoreRepository keyRepository,
+            ObjectMapper objectMapper,
+            @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${app.idempotency.lease-seconds:60}") long leaseSeconds) {
+        this.keyRepository = keyRepository;
+        this.objectMapper = objectMapper;
+        this.ttlMs = ttlHours * 60 * 60 * 1000;
+        this.leaseMs = leaseSeconds * 1000;
+    }
+
+    /**
+     * Runs the action once for the key, or replays its response.
+     *
+     * @param key       the Idempotency-Key header; without one the action simply runs
+     * @param scope     owner of the key (user id, "admin"), so clients can't see each other's responses
+     * @param operation name of the endpoint, part of the fingerprint
+     * @param request   request body or parameters, part of the fingerprint
+     */
+    public <T> ResponseEntity<T> execute(String key, String scope, String operation, Object request,
+            Class<T> responseType, Supplier<ResponseEntity<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = sha256(scope + "\n" + key);
+        String fingerprint = sha256(operation + "\n" + toJson(request));
+        Optional<IdempotencyKeyDocument> existing = claim(id, scope, fingerprint);
+        if (existing.isPresent()) {
+            return replay(existing.get(), fingerprint, responseType);
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(id);
+            throw e;
+        }
+        if (response.getStatusCode().is5xxServerError()) {
+            release(id);
+            return response;
+        }
+        try {
+            URI location = response.getHeaders().getLocation();
+            keyRepository.complete(id, response.getStatusCode().value(),
+                    response.getBody() != null ? toJson(response.getBody()) : null,
+                    location != null ? location.toString() : null,
+                    expireAt(System.currentTimeMillis() + ttlMs));
+        } catch (Exception e) {
+            // The action ran; a failed write only means a retry would run it again
+            System.err.println("Could not store idempotent response - " + e.getMessage());
+        }
+        return response;
+    }
+
+    private Optional<IdempotencyKeyDocument> claim(String id, String scope, String fingerprint) {
+        long now = System.currentTimeMillis();
+        IdempotencyKeyDocument claim = new IdempotencyKeyDocument();
+        claim.setId(id);
+        claim.setScope(scope);
+        claim.setFingerprint(fingerprint);
+        claim.setStatus(IdempotencyKeyDocument.IN_PROGRESS);
+        claim.setCreatedAt(now);
+        claim.setExpireAt(expireAt(now + leaseMs));
+        try {
+            return keyRepository.claim(claim);
+        } catch (Exception e) {
+            throw new RuntimeException("Error claiming idempotency key", e);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyKeyDocument record, String fingerprint, Class<T> responseType) {
+        if (!fingerprint.equals(record.getFingerprint())) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        }
+        if (!IdempotencyKeyDocument.COMPLETED.equals(record.getStatus())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        ResponseEntity.BodyBuilder replayed = ResponseEntity.status(record.getResponseStatus())
+                .header("Idempotent-Replayed", "true");
+        if (record.getResponseLocation() != null) {
+            replayed.location(URI.create(record.getResponseLocation()));
+        }
+        try {
+            T body = record.getResponseBody() != null
+                    ? objectMapper.readValue(record.getResponseBody(), responseType) : null;
+            return replayed.body(body);
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading stored response", e);
+        }
+    }
+
+    private static Timestamp expireAt(long epochMs) {
+        return Timestamp.ofTimeMicroseconds(epochMs * 1000);
+    }
+
+    private void release(String id) {
+        try {
+            keyRepository.delete(id);
+        } catch (Exception e) {
+            // The claim then blocks retries with 409 until it expires
+            System.err.println("Could not release idempotency key - " + e.getMessage());
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Request can't be fingerprinted", e);
+        }
+    }
+
+    private static String sha256(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.example.spareparts.service.firestore;
 
+import com.example.spareparts.dto.OrderStatusUpdate;
+import com.example.spareparts.dto.OrderUpdateResult;
 import com.example.spareparts.model.firestore.OrderDocument;
-import com.example.spareparts.model.firestore.ProductDocument;
 import com.example.spareparts.repository.firestore.OrderFirestoreRepository;
-import com.example.spareparts.repository.firestore.ProductFirestoreRepository;
+import com.example.spareparts.repository.firestore.OrderFirestoreRepository.StatusVersion;
+import com.example.spareparts.service.catalog.FrequentlyBoughtTogetherIndex;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service for Order operations using Firestore.
@@ -15,13 +19,28 @@ import java.util.Optional;
 @Service
 public class OrderFirestoreService {
 
+    public static final int MAX_BULK_UPDATES = 500;
+
+    // Longest an order waits for its group to commit; below the idempotency lease
+    private static final long PLACE_TIMEOUT_MS = 30_000;
+
+    // Statuses the fulfilment desk may set in bulk; cancelling restores stock and has its own path
+    private static final Set<String> FULFILMENT_STATUSES = Set.of("CONFIRMED", "PROCESSING", "SHIPPED", "DELIVERED");
+    // Orders only move forward along this; CANCELLED is final
+    private static final List<String> STATUS_FLOW = List.of("PENDING", "CONFIRMED", "PROCESSING", "SHIPPED", "DELIVERED");
+
     private final OrderFirestoreRepository orderRepository;
-    private final ProductFirestoreRepository productRepository;
+    private final StockFirestoreService stockService;
+    private final FrequentlyBoughtTogetherIndex boughtTogetherIndex;
+    private final OrderGroupCommitter groupCommitter;
 
     public OrderFirestoreService(OrderFirestoreRepository orderRepository,
-            ProductFirestoreRepository productRepository) {
+            StockFirestoreService stockService, FrequentlyBoughtTogetherIndex boughtTogetherIndex,
+            OrderGroupCommitter groupCommitter) {
         this.orderRepository = orderRepository;
-        this.productRepository = productRepository;
+        this.stockService = stockService;
+        this.boughtTogetherIndex = boughtTogetherIndex;
+        this.groupCommitter = groupCommitter;
     }
 
     public List<OrderDocument> getAllOrders() {
@@ -48,20 +67,43 @@ public class OrderFirestoreService {
         }
     }
 
+    /**
+     * Checks what can be checked without Firestore reads: an owner and at least one item,
+     * each with a valid product id and a positive quantity. Stock is checked when the order
+     * is placed.
+     *
+     * @return product id -> total quantity ordered
+     */
+    public Map<String, Integer> validateOrder(OrderDocument order) {
+        if (order.getUserId() == null || order.getUserId().isBlank()) {
+            throw new IllegalArgumentException("Order needs a user");
+        }
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            throw new IllegalArgumentException("Order has no items");
+        }
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (OrderDocument.OrderItemDocument item : order.getItems()) {
+            if (item.getProductId() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Every item needs a product and a positive quantity");
+            }
+            // Anything else can't name a product document and would fail the whole group commit
+            if (item.getProductId().isBlank() || item.getProductId().contains("/")) {
+                throw new IllegalArgumentException("Invalid product id: " + item.getProductId());
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Places the order, taking its items out of stock.
+     *
+     * @throws IllegalArgumentException if the order is malformed
+     * @throws IllegalStateException if a product has less stock than ordered
+     */
     public OrderDocument createOrder(OrderDocument order) {
         try {
-            // Validate and reduce stock for each item
-            for (OrderDocument.OrderItemDocument item : order.getItems()) {
-                Optional<ProductDocument> product = productRepository.findById(item.getProductId());
-                if (product.isEmpty()) {
-                    throw new RuntimeException("Product not found: " + item.getProductId());
-                }
-                if (product.get().getStock() < item.getQuantity()) {
-                    throw new RuntimeException("Insufficient stock for: " + item.getProductName());
-                }
-                // Reduce stock
-                productRepository.updateStock(item.getProductId(), -item.getQuantity());
-            }
+            Map<String, Integer> quantities = validateOrder(order);
 
             // Calculate totals
             double subtotal = order.getItems().stream()
@@ -73,7 +115,23 @@ public class OrderFirestoreService {
             // Set estimated delivery (7 days from now)
             order.setEstimatedDelivery(System.currentTimeMillis() + (7L * 24 * 60 * 60 * 1000));
 
-            return orderRepository.save(order);
+            // Stock check, stock decrements and the order write commit atomically, together
+            // with whatever other orders arrive in the same group commit window
+            OrderDocument saved;
+            try {
+                saved = groupCommitter.place(order, quantities).get(PLACE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } catch (TimeoutException e) {
+                // The group may still commit; the caller can't tell, so this is a server error
+                throw new TimeoutException("Order not placed within " + PLACE_TIMEOUT_MS + " ms");
+            }
+            stockService.stockChanged(quantities.keySet());
+            boughtTogetherIndex.recordOrder(saved);
+            return saved;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Invalid order or not enough stock, as opposed to a failure placing it
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Error creating order: " + e.getMessage(), e);
         }
@@ -103,15 +161,98 @@ public class OrderFirestoreService {
         }
     }
 
+    /**
+     * Applies statuses and tracking numbers to many orders in one go. Invalid entries, and
+     * updates that would move an order backwards or out of CANCELLED, are reported without
+     * being sent; the rest are written together and reported one by one.
+     *
+     * @return one result per update, in request order
+     */
+    public List<OrderUpdateResult> bulkUpdateFulfilment(List<OrderStatusUpdate> updates) {
+        if (updates.size() > MAX_BULK_UPDATES) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_UPDATES + " orders per request");
+        }
+        Map<String, String> rejected = new HashMap<>();
+        Map<String, Map<String, Object>> writes = new LinkedHashMap<>();
+        for (OrderStatusUpdate update : updates) {
+            String orderId = update.getOrderId();
+            String error = null;
+            if (orderId == null || orderId.isBlank()) {
+                continue;
+            } else if (writes.containsKey(orderId) || rejected.containsKey(orderId)) {
+                error = "Order appears more than once";
+            } else if (update.getStatus() == null && update.getTrackingNumber() == null) {
+                error = "Nothing to update";
+            } else if (update.getStatus() != null && !FULFILMENT_STATUSES.contains(update.getStatus())) {
+                error = "Status must be one of " + new TreeSet<>(FULFILMENT_STATUSES);
+            }
+            if (error != null) {
+                writes.remove(orderId);
+                rejected.put(orderId, error);
+                continue;
+            }
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("status", update.getStatus() != null ? update.getStatus() : "SHIPPED");
+            if (update.getTrackingNumber() != null) {
+                fields.put("trackingNumber", update.getTrackingNumber());
+            }
+            writes.put(orderId, fields);
+        }
+
+        Map<String, String> failed;
+        try {
+            // Writes are conditional on the version read here, so a concurrent change fails them
+            Map<String, StatusVersion> versions = writes.isEmpty()
+                    ? Map.of() : orderRepository.findStatusVersions(writes.keySet());
+            for (Iterator<Map.Entry<String, Map<String, Object>>> it = writes.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<String, Map<String, Object>> write = it.next();
+                StatusVersion version = versions.get(write.getKey());
+                String error = version == null ? "Order not found"
+                        : transitionError(version.getStatus(), (String) write.getValue().get("status"));
+                if (error != null) {
+                    rejected.put(write.getKey(), error);
+                    it.remove();
+                }
+            }
+            failed = writes.isEmpty() ? Map.of() : orderRepository.bulkUpdate(writes, versions);
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating orders", e);
+        }
+        List<OrderUpdateResult> results = new ArrayList<>(updates.size());
+        for (OrderStatusUpdate update : updates) {
+            String orderId = update.getOrderId();
+            if (orderId == null || orderId.isBlank()) {
+                results.add(OrderUpdateResult.failed(orderId, "Missing order id"));
+            } else if (rejected.containsKey(orderId)) {
+                // Every entry of a duplicated order is reported, none applied
+                results.add(OrderUpdateResult.failed(orderId, rejected.get(orderId)));
+            } else if (failed.containsKey(orderId)) {
+                results.add(OrderUpdateResult.failed(orderId, failed.get(orderId)));
+            } else {
+                results.add(OrderUpdateResult.applied(orderId));
+            }
+        }
+        return results;
+    }
+
+    private static String transitionError(String current, String target) {
+        int from = STATUS_FLOW.indexOf(current != null ? current : "PENDING");
+        if (from < 0 || from > STATUS_FLOW.indexOf(target)) {
+            return "Order can't move from " + current + " to " + target;
+        }
+        return null;
+    }
+
     public void cancelOrder(String orderId) {
         try {
             Optional<OrderDocument> order = orderRepository.findById(orderId);
             if (order.isPresent()) {
                 // Restore stock for each item
                 for (OrderDocument.OrderItemDocument item : order.get().getItems()) {
-                    productRepository.updateStock(item.getProductId(), item.getQuantity());
+                    stockService.updateStock(item.getProductId(), item.getQuantity());
                 }
                 orderRepository.updateStatus(orderId, "CANCELLED");
+                boughtTogetherIndex.removeOrder(order.get());
             }
         } catch (Exception e) {
             throw new RuntimeException("Error cancelling order", e);
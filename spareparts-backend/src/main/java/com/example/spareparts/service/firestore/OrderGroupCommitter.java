@@ -0,0 +1,181 @@
+package com.example.spareparts.service.firestore;
+
+import com.example.spareparts.model.firestore.OrderDocument;
+import com.example.spareparts.repository.firestore.OrderFirestoreRepository;
+import com.example.spareparts.repository.firestore.OrderFirestoreRepository.Placement;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit for order placement: orders arriving within a short window are placed
+ * together by one {@link OrderFirestoreRepository#placeOrders} transaction, one getAll
+ * and one commit for the whole group, instead of one transaction each. A hot product
+ * in many of the orders is then read and written once per group rather than once per
+ * order, and its checkouts stop retrying against each other.
+ * <p>
+ * Groups are committed one at a time; orders arriving while a group commits form the
+ * next one, so groups grow with load. A group is closed early when its estimated
+ * writes reach {@value #MAX_GROUP_WRITES}. When a group fails as a whole, its orders are
+ * retried one at a time, so an order that can't be placed doesn't fail the others with it.
+ * <p>
+ * On shutdown, groups already scheduled get {@value #SHUTDOWN_WAIT_MS} ms to commit;
+ * orders still waiting after that, or placed afterwards, fail with
+ * {@link RejectedExecutionException} instead of waiting forever.
+ */
+@Component
+public class OrderGroupCommitter {
+
+    // Firestore's historical per-commit write limit
+    static final int MAX_GROUP_WRITES = 500;
+
+    private static final long SHUTDOWN_WAIT_MS = 10_000;
+
+    private final OrderFirestoreRepository orderRepository;
+    private final long windowMs;
+    private final ScheduledExecutorService committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-group-commit");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Pending> pending = new ArrayList<>();
+    private int pendingWrites;
+    private boolean flushScheduled;
+    private boolean closed;
+
+    public OrderGroupCommitter(OrderFirestoreRepository orderRepository,
+            @Value("${app.orders.group-commit.window-ms:5}") long windowMs) {
+        this.orderRepository = orderRepository;
+        this.windowMs = windowMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            closed = true;
+        }
+        // Delayed flushes still run after shutdown()
+        committer.shutdown();
+        try {
+            committer.awaitTermination(SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        committer.shutdownNow();
+        List<Pending> abandoned;
+        synchronized (this) {
+            abandoned = new ArrayList<>(pending);
+            pending.clear();
+            pendingWrites = 0;
+        }
+        abandoned.forEach(p -> p.result.completeExceptionally(
+                new RejectedExecutionException("Order placement is shutting down")));
+    }
+
+    /**
+     * Queues the order for the next group.
+     *
+     * @param quantities product id -> total quantity ordered
+     * @return completes with the placed order once its group commits, or with an
+     *         {@link IllegalStateException} if the order was rejected for stock
+     */
+    public CompletableFuture<OrderDocument> place(OrderDocument order, Map<String, Integer> quantities) {
+        Pending entry = new Pending(new Placement(order, quantities));
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("Order placement is shutting down"));
+            }
+            pending.add(entry);
+            pendingWrites += entry.writes;
+            if (pendingWrites >= MAX_GROUP_WRITES) {
+                scheduleFlush(0);
+            } else {
+                scheduleFlush(windowMs);
+            }
+        }
+        return entry.result;
+    }
+
+    private synchronized void scheduleFlush(long delayMs) {
+        if (flushScheduled && delayMs > 0) {
+            return;
+        }
+        try {
+            committer.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+            flushScheduled = true;
+        } catch (RejectedExecutionException e) {
+            // Shut down; shutdown() fails whatever is still pending
+        }
+    }
+
+    private void flush() {
+        List<Pending> group = new ArrayList<>();
+        synchronized (this) {
+            flushScheduled = false;
+            int writes = 1; // the counter increment
+            while (!pending.isEmpty() && (group.isEmpty() || writes + pending.get(0).writes <= MAX_GROUP_WRITES)) {
+                Pending next = pending.remove(0);
+                writes += next.writes;
+                pendingWrites -= next.writes;
+                group.add(next);
+            }
+            if (!pending.isEmpty()) {
+                // Whatever didn't fit goes out right after this group
+                scheduleFlush(0);
+            }
+        }
+        if (group.isEmpty()) {
+            return;
+        }
+
+        if (!commit(group) && group.size() > 1) {
+            // Place the orders one at a time so the failure reaches only the order that caused it
+            group.forEach(p -> commit(List.of(p)));
+        }
+    }
+
+    /**
+     * Places the group and completes its results, unless the commit failed as a whole; a
+     * failed single order is completed with the failure.
+     *
+     * @return whether the group committed
+     */
+    private boolean commit(List<Pending> group) {
+        try {
+            orderRepository.placeOrders(group.stream().map(p -> p.placement).collect(Collectors.toList()));
+        } catch (Exception e) {
+            if (group.size() == 1) {
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                group.get(0).result.completeExceptionally(cause);
+            }
+            return false;
+        }
+        for (Pending p : group) {
+            if (p.placement.getRejection() != null) {
+                p.result.completeExceptionally(new IllegalStateException(p.placement.getRejection()));
+            } else {
+                p.result.complete(p.placement.getOrder());
+            }
+        }
+        return true;
+    }
+
+    private static class Pending {
+        final Placement placement;
+        final CompletableFuture<OrderDocument> result = new CompletableFuture<>();
+        // Upper estimate: the order, and per product its document or up to two shards
+        final int writes;
+
+        Pending(Placement placement) {
+            this.placement = placement;
+            this.writes = 1 + 2 * placement.getQuantities().size();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.spareparts.service.firestore;
+
+import com.example.spareparts.dto.OrderIntakeStatus;
+import com.example.spareparts.model.firestore.OrderDocument;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous order placement: an order is validated, queued and answered with a
+ * handle right away, and a fixed pool of workers places queued orders with
+ * {@link OrderFirestoreService#createOrder}. The queue is bounded; when it is full,
+ * {@link #submit} fails with {@link RejectedExecutionException} so callers are told to
+ * retry later instead of piling up request threads waiting on Firestore.
+ * <p>
+ * Statuses live in memory on this instance and are dropped
+ * {@value #RETENTION_MS} ms after the order finishes. On shutdown the queue is drained
+ * for up to {@code app.orders.intake.drain-timeout-ms}; orders still queued after that
+ * are marked FAILED.
+ */
+@Service
+public class OrderIntakeService {
+
+    // Longest a status request may wait for an order to finish
+    public static final long MAX_WAIT_MS = 30_000;
+
+    private static final long RETENTION_MS = 10 * 60 * 1000;
+
+    private final OrderFirestoreService orderService;
+    private final ThreadPoolExecutor workers;
+    private final long drainTimeoutMs;
+    private final ScheduledExecutorService expiry = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-intake-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Intake> intakes = new ConcurrentHashMap<>();
+
+    public OrderIntakeService(OrderFirestoreService orderService,
+            @Value("${app.orders.intake.workers:4}") int workerCount,
+            @Value("${app.orders.intake.queue-capacity:500}") int queueCapacity,
+            @Value("${app.orders.intake.drain-timeout-ms:30000}") long drainTimeoutMs) {
+        this.orderService = orderService;
+        this.drainTimeoutMs = drainTimeoutMs;
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "order-intake-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Stops taking orders and waits for the queued ones to be placed, since their callers
+     * were already told they were accepted.
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+                System.err.println("Order intake not drained after " + drainTimeoutMs + " ms - "
+                        + workers.getQueue().size() + " orders still queued");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Runnable dropped : workers.shutdownNow()) {
+            ((QueuedOrder) dropped).abandon();
+        }
+        expiry.shutdownNow();
+    }
+
+    /**
+     * Validates and queues the order.
+     *
+     * @return the QUEUED status, whose handle identifies the order until it is placed
+     * @throws IllegalArgumentException if the order is malformed
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public OrderIntakeStatus submit(OrderDocument order) {
+        orderService.validateOrder(order);
+        String handle = UUID.randomUUID().toString();
+        Intake intake = new Intake(new OrderIntakeStatus(handle, order.getUserId(), OrderIntakeStatus.QUEUED,
+                null, null, System.currentTimeMillis(), 0));
+        intakes.put(handle, intake);
+        try {
+            workers.execute(new QueuedOrder(intake, order));
+        } catch (RejectedExecutionException e) {
+            intakes.remove(handle);
+            throw e;
+        }
+        return intake.status;
+    }
+
+    /**
+     * Current status of the user's order; empty if the handle is unknown, expired or
+     * belongs to someone else.
+     */
+    public Optional<OrderIntakeStatus> getStatus(String handle, String userId) {
+        Intake intake = intakes.get(handle);
+        if (intake == null || !intake.status.getUserId().equals(userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(intake.status);
+    }
+
+    /**
+     * Like {@link #getStatus}, but completes when the order finishes or after waitMs,
+     * whichever comes first, without holding a thread in the meantime.
+     */
+    public CompletableFuture<Optional<OrderIntakeStatus>> awaitStatus(String handle, String userId, long waitMs) {
+        if (waitMs < 0 || waitMs > MAX_WAIT_MS) {
+            throw new IllegalArgumentException("waitMs must be between 0 and " + MAX_WAIT_MS);
+        }
+        Optional<OrderIntakeStatus> current = getStatus(handle, userId);
+        if (current.isEmpty() || current.get().isFinished() || waitMs == 0) {
+            return CompletableFuture.completedFuture(current);
+        }
+        Intake intake = intakes.get(handle);
+        return intake.done.copy()
+                .completeOnTimeout(intake.status, waitMs, TimeUnit.MILLISECONDS)
+                .thenApply(status -> Optional.of(intake.status));
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "workers", workers.getMaximumPoolSize(),
+                "active", workers.getActiveCount(),
+                "queued", workers.getQueue().size(),
+                "queueCapacity", workers.getQueue().size() + workers.getQueue().remainingCapacity(),
+                "tracked", intakes.size());
+    }
+
+    private void place(Intake intake, OrderDocument order) {
+        intake.status = intake.status.withStatus(OrderIntakeStatus.PROCESSING, null, null, 0);
+        try {
+            OrderDocument placed = orderService.createOrder(order);
+            intake.status = intake.status.withStatus(OrderIntakeStatus.COMPLETED, placed.getId(), null,
+                    System.currentTimeMillis());
+        } catch (Exception e) {
+            intake.status = intake.status.withStatus(OrderIntakeStatus.FAILED, null, e.getMessage(),
+                    System.currentTimeMillis());
+        }
+        intake.done.complete(intake.status);
+        String handle = intake.status.getHandle();
+        try {
+            expiry.schedule(() -> intakes.remove(handle), RETENTION_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the statuses go with the instance
+        }
+    }
+
+    private class QueuedOrder implements Runnable {
+        private final Intake intake;
+        private final OrderDocument order;
+
+        QueuedOrder(Intake intake, OrderDocument order) {
+            this.intake = intake;
+            this.order = order;
+        }
+
+        @Override
+        public void run() {
+            place(intake, order);
+        }
+
+        void abandon() {
+            intake.status = intake.status.withStatus(OrderIntakeStatus.FAILED, null,
+                    "Shut down before the order was placed", System.currentTimeMillis());
+            intake.done.complete(intake.status);
+        }
+    }
+
+    private static class Intake {
+        volatile OrderIntakeStatus status;
+        final CompletableFuture<OrderIntakeStatus> done = new CompletableFuture<>();
+
+        Intake(OrderIntakeStatus status) {
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.spareparts.service.firestore;
+
+import com.example.spareparts.dto.ProductDetail;
+import com.example.spareparts.dto.RatingSummary;
+import com.example.spareparts.model.firestore.BrandDocument;
+import com.example.spareparts.model.firestore.CategoryDocument;
+import com.example.spareparts.model.firestore.ProductDocument;
+import com.example.spareparts.model.firestore.ReviewDocument;
+import com.example.spareparts.repository.firestore.BrandFirestoreRepository;
+import com.example.spareparts.repository.firestore.CategoryFirestoreRepository;
+import com.example.spareparts.repository.firestore.ProductFirestoreRepository;
+import com.example.spareparts.repository.firestore.ReviewFirestoreRepository;
+import com.example.spareparts.service.catalog.BrandCatalogReplica;
+import com.example.spareparts.service.catalog.CategoryCatalogReplica;
+import com.example.spareparts.service.catalog.ProductCatalogReplica;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds the product page aggregate.
+ * <p>
+ * The product, the newest reviews and the rating summary are requested at the same
+ * time; brand and category are resolved as soon as the product arrives (from the
+ * replicas when loaded, so usually without another round trip). The caller waits once,
+ * for the slowest of them, instead of for each in turn.
+ */
+@Service
+public class ProductDetailFirestoreService {
+
+    public static final int DEFAULT_REVIEWS = 5;
+    public static final int MAX_REVIEWS = 50;
+
+    private final ProductFirestoreRepository productRepository;
+    private final ReviewFirestoreRepository reviewRepository;
+    private final BrandFirestoreRepository brandRepository;
+    private final CategoryFirestoreRepository categoryRepository;
+    private final ProductCatalogReplica productReplica;
+    private final BrandCatalogReplica brandReplica;
+    private final CategoryCatalogReplica categoryReplica;
+
+    public ProductDetailFirestoreService(ProductFirestoreRepository productRepository,
+            ReviewFirestoreRepository reviewRepository,
+            BrandFirestoreRepository brandRepository,
+            CategoryFirestoreRepository categoryRepository,
+            ProductCatalogReplica productReplica,
+            BrandCatalogReplica brandReplica,
+            CategoryCatalogReplica categoryReplica) {
+        this.productRepository = productRepository;
+        this.reviewRepository = reviewRepository;
+        this.brandRepository = brandRepository;
+        this.categoryRepository = categoryRepository;
+        this.productReplica = productReplica;
+        this.brandReplica = brandReplica;
+        this.categoryReplica = categoryReplica;
+    }
+
+    /**
+     * The product page, or null if there is no such product.
+     */
+    public ProductDetail getProductDetail(String id, Integer reviewLimit) {
+        int reviews = reviewLimit != null ? reviewLimit : DEFAULT_REVIEWS;
+        if (reviews < 0 || reviews > MAX_REVIEWS) {
+            throw new IllegalArgumentException("reviews must be between 0 and " + MAX_REVIEWS);
+        }
+        try {
+            ApiFuture<Optional<ProductDocument>> product = productReplica.isReady()
+                    ? ApiFutures.immediateFuture(productReplica.findById(id))
+                    : productRepository.findByIdAsync(id);
+            ApiFuture<List<ReviewDocument>> latestReviews = reviews > 0
+                    ? reviewRepository.findLatestByProductIdAsync(id, reviews)
+                    : ApiFutures.immediateFuture(List.<ReviewDocument>of());
+            ApiFuture<RatingSummary> rating = reviewRepository.getRatingSummaryAsync(id);
+            ApiFuture<Optional<BrandDocument>> brand = ApiFutures.transformAsync(product,
+                    p -> p.isPresent() ? findBrand(p.get().getBrand())
+                            : ApiFutures.immediateFuture(Optional.<BrandDocument>empty()),
+                    MoreExecutors.directExecutor());
+            ApiFuture<Optional<CategoryDocument>> category = ApiFutures.transformAsync(product,
+                    p -> p.isPresent() ? findCategory(p.get().getCategory())
+                            : ApiFutures.immediateFuture(Optional.<CategoryDocument>empty()),
+                    MoreExecutors.directExecutor());
+
+            // Wait once for everything; each get() below is then already complete
+            ApiFutures.allAsList(List.of(product, latestReviews, rating, brand, category)).get();
+            Optional<ProductDocument> found = product.get();
+            if (found.isEmpty()) {
+                return null;
+            }
+            return new ProductDetail(found.get(), latestReviews.get(), rating.get(),
+                    brand.get().orElse(null), category.get().orElse(null));
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching product detail", e);
+        }
+    }
+
+    private ApiFuture<Optional<BrandDocument>> findBrand(String name) {
+        if (name == null || name.isBlank()) {
+            return ApiFutures.immediateFuture(Optional.<BrandDocument>empty());
+        }
+        if (brandReplica.isReady()) {
+            return ApiFutures.immediateFuture(brandReplica.values().stream()
+                    .filter(b -> name.equals(b.getName()))
+                    .findFirst());
+        }
+        return brandRepository.findByNameAsync(name);
+    }
+
+    /**
+     * Products name their category by slug.
+     */
+    private ApiFuture<Optional<CategoryDocument>> findCategory(String slug) {
+        if (slug == null || slug.isBlank()) {
+            return ApiFutures.immediateFuture(Optional.<CategoryDocument>empty());
+        }
+        if (categoryReplica.isReady()) {
+            return ApiFutures.immediateFuture(categoryReplica.values().stream()
+                    .filter(c -> slug.equals(c.getSlug()))
+                    .findFirst());
+        }
+        return categoryRepository.findBySlugAsync(slug);
+    }
+}
@@ -1,13 +1,42 @@
 package com.example.spareparts.service.firestore;
 
+import com.example.spareparts.dto.FacetSearchResponse;
+import com.example.spareparts.dto.PageResponse;
+import com.example.spareparts.dto.ProductSummary;
+import com.example.spareparts.dto.RatingSummary;
 import com.example.spareparts.model.firestore.ProductDocument;
+import com.example.spareparts.repository.firestore.PageCursor;
 import com.example.spareparts.repository.firestore.ProductFirestoreRepository;
+import com.example.spareparts.repository.firestore.ProductSort;
 import com.example.spareparts.repository.firestore.ReviewFirestoreRepository;
+import com.example.spareparts.service.catalog.CatalogSnapshot;
+import com.example.spareparts.service.catalog.ProductCatalogReplica;
+import com.example.spareparts.service.catalog.FitmentIndex;
+import com.example.spareparts.service.catalog.FrequentlyBoughtTogetherIndex;
+import com.example.spareparts.service.catalog.ProductCodeIndex;
+import com.example.spareparts.service.catalog.ProductColumns;
+import com.example.spareparts.service.catalog.ProductFacetIndex;
+import com.example.spareparts.service.catalog.ProductQueryCache;
+import com.example.spareparts.service.catalog.ProductSearchIndex;
+import com.example.spareparts.service.catalog.ProductSortIndex;
+import com.example.spareparts.service.catalog.ProductSuggestionIndex;
+import com.example.spareparts.service.catalog.SuggestionTrie;
+import com.google.api.core.ApiFuture;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 /**
  * Service for Product operations using Firestore.
@@ -15,34 +44,215 @@ import java.util.concurrent.ExecutionException;
 @Service
 public class ProductFirestoreService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_LOOKUP_CODES = 200;
+    public static final int MAX_BATCH_IDS = 100;
+    public static final int DEFAULT_SUGGESTIONS = 8;
+    public static final int DEFAULT_RELATED = 6;
+    public static final int MAX_RELATED = 20;
+
     private final ProductFirestoreRepository productRepository;
     private final ReviewFirestoreRepository reviewRepository;
+    private final ProductSearchIndex searchIndex;
+    private final ProductCatalogReplica catalogReplica;
+    private final ProductCodeIndex codeIndex;
+    private final FitmentIndex fitmentIndex;
+    private final ProductSuggestionIndex suggestionIndex;
+    private final ProductFacetIndex facetIndex;
+    private final ProductSortIndex sortIndex;
+    private final CatalogSnapshot catalogSnapshot;
+    private final FrequentlyBoughtTogetherIndex boughtTogetherIndex;
+    private final ProductQueryCache queryCache;
+    private final ProductColumns productColumns;
 
     public ProductFirestoreService(ProductFirestoreRepository productRepository,
-            ReviewFirestoreRepository reviewRepository) {
+            ReviewFirestoreRepository reviewRepository,
+            ProductSearchIndex searchIndex,
+            ProductCatalogReplica catalogReplica,
+            ProductCodeIndex codeIndex,
+            FitmentIndex fitmentIndex,
+            ProductSuggestionIndex suggestionIndex,
+            ProductFacetIndex facetIndex,
+            ProductSortIndex sortIndex,
+            CatalogSnapshot catalogSnapshot,
+            FrequentlyBoughtTogetherIndex boughtTogetherIndex,
+            ProductQueryCache queryCache,
+            ProductColumns productColumns) {
         this.productRepository = productRepository;
         this.reviewRepository = reviewRepository;
+        this.searchIndex = searchIndex;
+        this.catalogReplica = catalogReplica;
+        this.codeIndex = codeIndex;
+        this.fitmentIndex = fitmentIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.facetIndex = facetIndex;
+        this.sortIndex = sortIndex;
+        this.catalogSnapshot = catalogSnapshot;
+        this.boughtTogetherIndex = boughtTogetherIndex;
+        this.queryCache = queryCache;
+        this.productColumns = productColumns;
     }
 
+    // Reads are served from the replica once its first snapshot has arrived;
+    // until then (or if the listener fails) they go straight to Firestore.
+
     public List<ProductDocument> getAllProducts() {
         try {
+            if (catalogReplica.isReady()) {
+                return catalogReplica.findAllActive();
+            }
             return productRepository.findAllActive();
         } catch (Exception e) {
             throw new RuntimeException("Error fetching products", e);
         }
     }
 
+    /**
+     * Summaries of all active products, optionally restricted to a category or brand.
+     * Without the replica only the summary fields are read from Firestore.
+     */
+    public List<ProductSummary> getProductSummaries(String category, String brand) {
+        try {
+            List<ProductDocument> products;
+            if (catalogReplica.isReady()) {
+                products = category != null ? catalogReplica.findByCategory(category)
+                        : brand != null ? catalogReplica.findByBrand(brand)
+                        : catalogReplica.findAllActive();
+            } else if (category != null) {
+                products = productRepository.findActiveProjected("category", category, ProductSummary.FIELDS);
+            } else if (brand != null) {
+                products = productRepository.findActiveProjected("brand", brand, ProductSummary.FIELDS);
+            } else {
+                products = productRepository.findActiveProjected(null, null, ProductSummary.FIELDS);
+            }
+            return toSummaries(products);
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching product summaries", e);
+        }
+    }
+
+    /**
+     * Keyset-paginated listing of active products, optionally restricted to a category or brand
+     * and to an inclusive price range. Page sizes above {@link #MAX_PAGE_SIZE} are clamped.
+     */
+    public PageResponse<ProductDocument> getProductPage(String category, String brand, String sortParam,
+            boolean descending, Double minPrice, Double maxPrice, Integer limit, String cursor) {
+        return loadPage(category, brand, sortParam, descending, minPrice, maxPrice, limit, cursor, null);
+    }
+
+    /**
+     * {@link #getProductPage} returning summaries, read with a Firestore field mask when the
+     * page doesn't come from the in-memory indexes.
+     */
+    public PageResponse<ProductSummary> getProductSummaryPage(String category, String brand, String sortParam,
+            boolean descending, Double minPrice, Double maxPrice, Integer limit, String cursor) {
+        PageResponse<ProductDocument> page = loadPage(category, brand, sortParam, descending, minPrice, maxPrice,
+                limit, cursor, ProductSummary.FIELDS);
+        return new PageResponse<>(toSummaries(page.getItems()), page.getNextCursor(), page.getLimit());
+    }
+
+    private PageResponse<ProductDocument> loadPage(String category, String brand, String sortParam,
+            boolean descending, Double minPrice, Double maxPrice, Integer limit, String cursor,
+            List<String> fieldMask) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        pageSize = Math.min(pageSize, MAX_PAGE_SIZE);
+        ProductSort sort = ProductSort.parse(sortParam);
+        PageCursor after = cursor != null && !cursor.isBlank()
+                ? PageCursor.decode(cursor, sort, descending)
+                : null;
+
+        try {
+            // Fetch one extra item to find out whether there is a next page
+            List<ProductDocument> fetched;
+            boolean priceRange = minPrice != null || maxPrice != null;
+            if (catalogReplica.isReady() || priceRange) {
+                ensureSortIndexLoaded();
+                String filterField = category != null ? ProductSortIndex.CATEGORY
+                        : brand != null ? ProductSortIndex.BRAND
+                        : null;
+                fetched = sortIndex.page(sort, descending, after, priceRange ? ProductSort.PRICE : null,
+                        minPrice, maxPrice, filterField, category != null ? category : brand, pageSize + 1);
+            } else if (category != null) {
+                fetched = productRepository.findActivePage("category", category, sort, descending, pageSize + 1,
+                        after, fieldMask);
+            } else if (brand != null) {
+                fetched = productRepository.findActivePage("brand", brand, sort, descending, pageSize + 1,
+                        after, fieldMask);
+            } else {
+                fetched = productRepository.findActivePage(null, null, sort, descending, pageSize + 1,
+                        after, fieldMask);
+            }
+
+            if (fetched.size() <= pageSize) {
+                return new PageResponse<>(fetched, null, pageSize);
+            }
+            List<ProductDocument> items = new ArrayList<>(fetched.subList(0, pageSize));
+            ProductDocument last = items.get(items.size() - 1);
+            String nextCursor = new PageCursor(sort, descending, sort.valueOf(last), last.getId()).encode();
+            return new PageResponse<>(items, nextCursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching product page", e);
+        }
+    }
+
+    private void ensureSortIndexLoaded() throws ExecutionException, InterruptedException {
+        if (sortIndex.isLoaded()) {
+            return;
+        }
+        synchronized (sortIndex) {
+            if (!sortIndex.isLoaded()) {
+                // Price ranges have no Firestore equivalent here, so load the index up front
+                sortIndex.rebuild(productRepository.findAllActive());
+            }
+        }
+    }
+
     public Optional<ProductDocument> getProductById(String id) {
         try {
+            if (catalogReplica.isReady()) {
+                return catalogReplica.findById(id);
+            }
             return productRepository.findById(id);
         } catch (Exception e) {
             throw new RuntimeException("Error fetching product", e);
         }
     }
 
+    /**
+     * Products with the given ids in request order, fetched together; unknown ids are skipped.
+     */
+    public List<ProductDocument> getProductsByIds(List<String> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " ids per batch");
+        }
+        try {
+            if (catalogReplica.isReady()) {
+                return ids.stream()
+                        .distinct()
+                        .map(catalogReplica::findById)
+                        .flatMap(Optional::stream)
+                        .collect(Collectors.toList());
+            }
+            return new ArrayList<>(productRepository.findAllById(ids).values());
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching products by id", e);
+        }
+    }
+
     public ProductDocument saveProduct(ProductDocument product) {
         try {
-            return productRepository.save(product);
+            ProductDocument saved = productRepository.save(product);
+            searchIndex.upsert(saved);
+            return saved;
         } catch (Exception e) {
             throw new RuntimeException("Error saving product", e);
         }
@@ -51,6 +261,7 @@ public class ProductFirestoreService {
     public void deleteProduct(String id) {
         try {
             productRepository.softDelete(id);
+            searchIndex.remove(id);
         } catch (Exception e) {
             throw new RuntimeException("Error deleting product", e);
         }
@@ -58,6 +269,9 @@ public class ProductFirestoreService {
 
     public List<ProductDocument> getProductsByCategory(String category) {
         try {
+            if (catalogReplica.isReady()) {
+                return catalogReplica.findByCategory(category);
+            }
             return productRepository.findByCategory(category);
         } catch (Exception e) {
             throw new RuntimeException("Error fetching products by category", e);
@@ -66,6 +280,9 @@ public class ProductFirestoreService {
 
     public List<ProductDocument> getProductsByBrand(String brand) {
         try {
+            if (catalogReplica.isReady()) {
+                return catalogReplica.findByBrand(brand);
+            }
             return productRepository.findByBrand(brand);
         } catch (Exception e) {
             throw new RuntimeException("Error fetching products by brand", e);
@@ -74,35 +291,200 @@ public class ProductFirestoreService {
 
     public List<ProductDocument> getLowStockProducts(int threshold) {
         try {
+            if (productColumns.isLoaded()) {
+                return productColumns.findLowStock(threshold);
+            }
             return productRepository.findLowStock(threshold);
         } catch (Exception e) {
             throw new RuntimeException("Error fetching low stock products", e);
         }
     }
 
-    public List<ProductDocument> searchProducts(String query) {
+    public List<ProductSummary> searchProducts(String query) {
         try {
-            return productRepository.searchProducts(query);
+            ensureSearchIndexLoaded();
+            // Read the version first: a change during the search makes the entry stale, never wrong
+            long version = searchIndex.getVersion();
+            return queryCache.search().get(ProductQueryCache.searchKey(query), version,
+                    () -> Collections.unmodifiableList(toSummaries(searchIndex.search(query))));
         } catch (Exception e) {
             throw new RuntimeException("Error searching products", e);
         }
     }
 
-    public void updateStock(String productId, int quantity) {
+    private void ensureSearchIndexLoaded() throws ExecutionException, InterruptedException {
+        if (searchIndex.isLoaded()) {
+            return;
+        }
+        synchronized (searchIndex) {
+            if (!searchIndex.isLoaded()) {
+                // Only needed before the replica's first snapshot has populated the index
+                searchIndex.rebuild(productRepository.findAllActive());
+            }
+        }
+    }
+
+    /**
+     * Faceted browsing: filters are facet -> accepted values (see {@link ProductFacetIndex#FACETS}).
+     */
+    public FacetSearchResponse<ProductSummary> getFacetedProducts(Map<String, List<String>> filters,
+            Integer offset, Integer limit) {
+        int start = offset != null ? offset : 0;
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (start < 0 || pageSize < 1) {
+            throw new IllegalArgumentException("offset must be at least 0 and limit at least 1");
+        }
         try {
-            productRepository.updateStock(productId, quantity);
+            ensureFacetIndexLoaded();
+            int size = Math.min(pageSize, MAX_PAGE_SIZE);
+            long version = facetIndex.getVersion();
+            return queryCache.facets().get(ProductQueryCache.facetKey(filters, start, size), version, () -> {
+                FacetSearchResponse<ProductDocument> result = facetIndex.query(filters, start, size);
+                return new FacetSearchResponse<>(toSummaries(result.getItems()), result.getTotal(),
+                        result.getOffset(), result.getLimit(), result.getFacets());
+            });
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
-            throw new RuntimeException("Error updating stock", e);
+            throw new RuntimeException("Error fetching faceted products", e);
+        }
+    }
+
+    private void ensureFacetIndexLoaded() throws ExecutionException, InterruptedException {
+        if (facetIndex.isLoaded()) {
+            return;
+        }
+        synchronized (facetIndex) {
+            if (!facetIndex.isLoaded()) {
+                facetIndex.rebuild(productRepository.findAllActive());
+            }
+        }
+    }
+
+    /**
+     * Finds the active product with the given SKU or barcode.
+     */
+    public Optional<ProductDocument> lookupByCode(String code) {
+        try {
+            if (codeIndex.isLoaded()) {
+                return codeIndex.lookup(code);
+            }
+            String key = ProductCodeIndex.normalize(code);
+            if (key == null) {
+                return Optional.empty();
+            }
+            // Stored codes aren't normalized, so query the usual spellings and then match
+            // exactly as the index does
+            Set<String> spellings = new LinkedHashSet<>(List.of(key, code.trim(), key.toLowerCase(Locale.ROOT)));
+            for (String field : List.of("sku", "barcode")) {
+                Optional<ProductDocument> match = productRepository.findActiveByCode(field, spellings).stream()
+                        .filter(p -> key.equals(ProductCodeIndex.normalize("sku".equals(field) ? p.getSku() : p.getBarcode())))
+                        .min(Comparator.comparing(ProductDocument::getId));
+                if (match.isPresent()) {
+                    return match;
+                }
+            }
+            return Optional.empty();
+        } catch (Exception e) {
+            throw new RuntimeException("Error looking up product code", e);
+        }
+    }
+
+    /**
+     * Resolves a basket of scanned codes. Codes without a match are listed under "missing".
+     */
+    public Map<String, Object> lookupByCodes(List<String> codes) {
+        if (codes.size() > MAX_LOOKUP_CODES) {
+            throw new IllegalArgumentException("At most " + MAX_LOOKUP_CODES + " codes per lookup");
+        }
+        Map<String, ProductDocument> found = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String code : codes) {
+            Optional<ProductDocument> product = lookupByCode(code);
+            if (product.isPresent()) {
+                found.put(code, product.get());
+            } else {
+                missing.add(code);
+            }
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("found", found);
+        result.put("missing", missing);
+        return result;
+    }
+
+    /**
+     * Typeahead suggestions for the search box. Empty until the catalog replicas have loaded.
+     */
+    public List<SuggestionTrie.Suggestion> autocomplete(String query, Integer limit) {
+        int count = limit != null ? limit : DEFAULT_SUGGESTIONS;
+        if (count < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return suggestionIndex.suggest(query, Math.min(count, SuggestionTrie.TOP_K));
+    }
+
+    /**
+     * Active products most often ordered together with the given one, strongest first.
+     * Answered from the in-memory co-occurrence counts; empty for products never ordered
+     * with anything else.
+     */
+    public List<ProductSummary> getFrequentlyBoughtTogether(String productId, Integer limit) {
+        int count = limit != null ? limit : DEFAULT_RELATED;
+        if (count < 1 || count > MAX_RELATED) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_RELATED);
+        }
+        // Ask for extra candidates so discontinued products can be dropped without a second pass
+        List<String> ids = boughtTogetherIndex.topK(productId, count * 2);
+        return getProductsByIds(ids).stream()
+                .filter(ProductDocument::isActive)
+                .limit(count)
+                .map(ProductSummary::from)
+                .collect(Collectors.toList());
+    }
+
+    public List<FitmentIndex.VehicleModel> getVehicleModels(String brand, Integer year) {
+        return fitmentIndex.findModels(brand, null, year);
+    }
+
+    /**
+     * Products that fit the given vehicle. Brand or model is required; year and category narrow it.
+     */
+    public Map<String, Object> getFittingProducts(String brand, String model, Integer year, String category) {
+        try {
+            List<ProductDocument> products;
+            if (catalogReplica.isReady()) {
+                products = fitmentIndex.findFittingProducts(brand, model, year, category);
+            } else if (model != null) {
+                // Before the replica loads, match declared models exactly and skip the year check
+                products = productRepository.findByCompatibleModel(model).stream()
+                        .filter(p -> brand == null || p.getBrand() == null || brand.equalsIgnoreCase(p.getBrand()))
+                        .filter(p -> category == null || category.equalsIgnoreCase(p.getCategory()))
+                        .collect(Collectors.toList());
+            } else {
+                throw new IllegalArgumentException("model is required while the catalog is loading");
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("models", fitmentIndex.findModels(brand, model, year));
+            result.put("products", products);
+            return result;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching fitting products", e);
         }
     }
 
     public ProductDocument getProductWithRating(String id) {
         try {
-            Optional<ProductDocument> product = productRepository.findById(id);
+            // Both reads in flight at once; the rating comes from aggregations, not review documents
+            ApiFuture<RatingSummary> rating = reviewRepository.getRatingSummaryAsync(id);
+            Optional<ProductDocument> product = productRepository.findByIdAsync(id).get();
             if (product.isPresent()) {
+                RatingSummary summary = rating.get();
                 ProductDocument p = product.get();
-                p.setAverageRating(reviewRepository.getAverageRating(id));
-                p.setReviewCount(reviewRepository.getReviewCount(id));
+                p.setAverageRating(summary.getAverageRating());
+                p.setReviewCount((int) summary.getReviewCount());
                 return p;
             }
             return null;
@@ -111,6 +493,42 @@ public class ProductFirestoreService {
         }
     }
 
+    /**
+     * The compressed full-catalog snapshot. Built from Firestore once if the replica
+     * hasn't delivered its first snapshot yet; after that it follows the replica.
+     */
+    public CatalogSnapshot.Artifact getCatalogSnapshot() {
+        CatalogSnapshot.Artifact snapshot = catalogSnapshot.current();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        try {
+            synchronized (catalogSnapshot) {
+                snapshot = catalogSnapshot.current();
+                return snapshot != null ? snapshot : catalogSnapshot.rebuild(
+                        catalogReplica.isReady() ? catalogReplica.values() : productRepository.findAllActive());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error building catalog snapshot", e);
+        }
+    }
+
+    public Map<String, Object> getCatalogStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("ready", catalogReplica.isReady());
+        status.put("version", catalogReplica.getVersion());
+        status.put("lastSyncedAt", catalogReplica.getLastSyncedAt());
+        status.put("productCount", catalogReplica.size());
+        status.put("suggestionsReady", suggestionIndex.isReady());
+        status.put("suggestionCount", suggestionIndex.size());
+        CatalogSnapshot.Artifact snapshot = catalogSnapshot.current();
+        status.put("snapshotVersion", snapshot != null ? snapshot.getVersion() : null);
+        status.put("boughtTogetherLoaded", boughtTogetherIndex.isLoaded());
+        status.put("boughtTogetherProducts", boughtTogetherIndex.size());
+        status.put("queryCache", queryCache.stats());
+        return status;
+    }
+
     public long getProductCount() {
         try {
             return productRepository.count();
@@ -118,4 +536,8 @@ public class ProductFirestoreService {
             throw new RuntimeException("Error counting products", e);
         }
     }
+
+    private static List<ProductSummary> toSummaries(List<ProductDocument> products) {
+        return products.stream().map(ProductSummary::from).collect(Collectors.toList());
+    }
 }
@@ -1,9 +1,11 @@
 package com.example.spareparts.service.firestore;
 
+import com.example.spareparts.dto.RatingSummary;
 import com.example.spareparts.model.firestore.ReviewDocument;
 import com.example.spareparts.model.firestore.ProductDocument;
 import com.example.spareparts.repository.firestore.ReviewFirestoreRepository;
 import com.example.spareparts.repository.firestore.ProductFirestoreRepository;
+import com.google.api.core.ApiFuture;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -93,14 +95,14 @@ public class ReviewFirestoreService {
 
     private void updateProductRating(String productId) {
         try {
-            double avgRating = reviewRepository.getAverageRating(productId);
-            int reviewCount = reviewRepository.getReviewCount(productId);
-
-            Optional<ProductDocument> product = productRepository.findById(productId);
+            ApiFuture<RatingSummary> summary = reviewRepository.getRatingSummaryAsync(productId);
+            ApiFuture<Optional<ProductDocument>> productFuture = productRepository.findByIdAsync(productId);
+            RatingSummary rating = summary.get();
+            Optional<ProductDocument> product = productFuture.get();
             if (product.isPresent()) {
                 ProductDocument p = product.get();
-                p.setAverageRating(avgRating);
-                p.setReviewCount(reviewCount);
+                p.setAverageRating(rating.getAverageRating());
+                p.setReviewCount((int) rating.getReviewCount());
                 productRepository.save(p);
             }
         } catch (Exception e) {
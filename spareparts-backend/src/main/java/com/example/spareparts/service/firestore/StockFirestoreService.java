@@ -0,0 +1,130 @@
+package com.example.spareparts.service.firestore;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import com.example.spareparts.repository.firestore.ProductFirestoreRepository;
+import com.example.spareparts.repository.firestore.StockShardFirestoreRepository;
+import com.example.spareparts.service.catalog.ProductCatalogReplica;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stock changes outside checkout, routed to the product document or, for products
+ * flagged for sharded inventory, to its stock shards.
+ * <p>
+ * Sharded products don't update their own stock field on every sale; instead changes
+ * schedule a roll-up that copies the shard total into it after {@value #ROLLUP_DELAY_MS} ms,
+ * with bursts on one product coalesced into one write. Listings, the replica and low-stock
+ * reports therefore lag by about that delay, while {@link #getStock} is always live.
+ */
+@Service
+public class StockFirestoreService {
+
+    public static final int MAX_SHARDS = 100;
+
+    private static final long ROLLUP_DELAY_MS = 2000;
+
+    private final ProductFirestoreRepository productRepository;
+    private final StockShardFirestoreRepository stockShardRepository;
+    private final ProductCatalogReplica productReplica;
+    private final ScheduledExecutorService rollupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stock-shard-rollup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<String> rollupPending = ConcurrentHashMap.newKeySet();
+
+    public StockFirestoreService(ProductFirestoreRepository productRepository,
+            StockShardFirestoreRepository stockShardRepository,
+            ProductCatalogReplica productReplica) {
+        this.productRepository = productRepository;
+        this.stockShardRepository = stockShardRepository;
+        this.productReplica = productReplica;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rollupExecutor.shutdownNow();
+    }
+
+    /**
+     * Adds (positive) or removes (negative) stock.
+     *
+     * @throws IllegalArgumentException if a sharded product has less stock than is removed
+     */
+    public void updateStock(String productId, int quantity) {
+        try {
+            if (stockShardRepository.updateStock(productId, quantity)) {
+                scheduleRollup(productId);
+            }
+        } catch (IllegalStateException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        } catch (Exception e) {
+            throw new RuntimeException("Error updating stock", e);
+        }
+    }
+
+    /**
+     * Spreads the product's stock over the given number of shards; 0 turns sharding off.
+     *
+     * @return the product's total stock
+     */
+    public long setStockShards(String productId, int shards) {
+        if (shards < 0 || shards > MAX_SHARDS) {
+            throw new IllegalArgumentException("shards must be between 0 and " + MAX_SHARDS);
+        }
+        try {
+            return stockShardRepository.reshard(productId, shards);
+        } catch (Exception e) {
+            throw new RuntimeException("Error sharding stock: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Live stock: the stock field, or the sum of the shards for sharded products.
+     */
+    public long getStock(String productId) {
+        try {
+            Optional<ProductDocument> product = productRepository.findById(productId);
+            if (product.isEmpty()) {
+                throw new IllegalArgumentException("Product not found: " + productId);
+            }
+            int shards = product.get().getStockShards();
+            return shards > 0 ? stockShardRepository.sum(productId, shards) : product.get().getStock();
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error fetching stock", e);
+        }
+    }
+
+    /**
+     * Notes that checkout changed these products' stock, so sharded ones get rolled up.
+     */
+    public void stockChanged(Collection<String> productIds) {
+        for (String productId : productIds) {
+            if (!productReplica.isReady()
+                    || productReplica.findById(productId).map(ProductDocument::getStockShards).orElse(0) > 0) {
+                scheduleRollup(productId);
+            }
+        }
+    }
+
+    private void scheduleRollup(String productId) {
+        if (rollupPending.add(productId)) {
+            rollupExecutor.schedule(() -> {
+                rollupPending.remove(productId);
+                try {
+                    stockShardRepository.rollUp(productId);
+                } catch (Exception e) {
+                    System.err.println("Stock roll-up failed for " + productId + " - " + e.getMessage());
+                }
+            }, ROLLUP_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -105,12 +105,7 @@ public class UserFirestoreService {
     public List<ProductDocument> getWishlistProducts(String userId) {
         try {
             List<String> wishlistIds = userRepository.getWishlist(userId);
-            List<ProductDocument> products = new ArrayList<>();
-            for (String productId : wishlistIds) {
-                Optional<ProductDocument> product = productRepository.findById(productId);
-                product.ifPresent(products::add);
-            }
-            return products;
+            return new ArrayList<>(productRepository.findAllById(wishlistIds).values());
         } catch (Exception e) {
             throw new RuntimeException("Error fetching wishlist", e);
         }
@@ -0,0 +1,31 @@
+package com.example.spareparts.dto;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSummaryTest {
+
+    @Test
+    void from_keepsShortDescriptions() {
+        ProductDocument product = new ProductDocument();
+        product.setId("p1");
+        product.setDescription("  Sintered brake\n pads  ");
+        assertEquals("Sintered brake pads", ProductSummary.from(product).getDescription());
+
+        product.setDescription("   ");
+        assertNull(ProductSummary.from(product).getDescription());
+    }
+
+    @Test
+    void excerpt_cutsLongDescriptionsAtWordBoundary() {
+        String description = "word ".repeat(100);
+        String excerpt = ProductSummary.excerpt(description);
+        assertTrue(excerpt.length() <= ProductSummary.DESCRIPTION_EXCERPT_LENGTH);
+        assertTrue(excerpt.endsWith("word\u2026"));
+
+        String unbroken = "x".repeat(500);
+        assertEquals(ProductSummary.DESCRIPTION_EXCERPT_LENGTH, ProductSummary.excerpt(unbroken).length());
+    }
+}
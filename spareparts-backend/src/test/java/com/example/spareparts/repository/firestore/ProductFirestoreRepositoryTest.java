@@ -0,0 +1,48 @@
+package com.example.spareparts.repository.firestore;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductFirestoreRepositoryTest {
+
+    private static ProductDocument product(int stock, int stockShards) {
+        ProductDocument p = new ProductDocument();
+        p.setId("p1");
+        p.setStock(stock);
+        p.setStockShards(stockShards);
+        return p;
+    }
+
+    @Test
+    void keepStoredStock_shardedProductKeepsShardsAndRolledUpStock() {
+        ProductDocument edited = product(0, 0);
+        ProductFirestoreRepository.keepStoredStock(edited, product(40, 8));
+
+        assertEquals(8, edited.getStockShards());
+        assertEquals(40, edited.getStock());
+    }
+
+    @Test
+    void keepStoredStock_unshardedProductTakesEditedStock() {
+        ProductDocument edited = product(12, 0);
+        ProductFirestoreRepository.keepStoredStock(edited, product(5, 0));
+
+        assertEquals(0, edited.getStockShards());
+        assertEquals(12, edited.getStock());
+    }
+
+    @Test
+    void keepStoredStock_editCannotTurnShardingOn() {
+        ProductDocument edited = product(12, 4);
+        ProductFirestoreRepository.keepStoredStock(edited, product(5, 0));
+        assertEquals(0, edited.getStockShards());
+        assertEquals(12, edited.getStock());
+
+        ProductDocument created = product(3, 4);
+        ProductFirestoreRepository.keepStoredStock(created, null);
+        assertEquals(0, created.getStockShards());
+        assertEquals(3, created.getStock());
+    }
+}
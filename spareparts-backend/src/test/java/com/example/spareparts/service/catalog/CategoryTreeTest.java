@@ -0,0 +1,66 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.CategoryDocument;
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CategoryTreeTest {
+
+    private static CategoryDocument category(String id, String slug, String parentId, int order, boolean active) {
+        CategoryDocument c = new CategoryDocument();
+        c.setId(id);
+        c.setName("Category " + slug);
+        c.setSlug(slug);
+        c.setParentId(parentId);
+        c.setDisplayOrder(order);
+        c.setActive(active);
+        return c;
+    }
+
+    private static ProductDocument product(String id, String category, boolean active) {
+        ProductDocument p = new ProductDocument();
+        p.setId(id);
+        p.setCategory(category);
+        p.setActive(active);
+        return p;
+    }
+
+    @Test
+    void build_nestsCategoriesAndRollsUpCounts() {
+        CategoryTree.Snapshot tree = CategoryTree.build(
+                List.of(category("1", "brake", null, 2, true),
+                        category("2", "engine", null, 1, true),
+                        category("3", "pads", "1", 1, true),
+                        category("4", "discs", "1", 2, true),
+                        category("5", "hidden", null, 3, false),
+                        category("6", "orphan", "5", 1, true)),
+                List.of(product("a", "brake", true),
+                        product("b", "pads", true),
+                        product("c", "pads", true),
+                        product("d", "4", true),
+                        product("e", "discs", false),
+                        product("f", "hidden", true)));
+
+        assertEquals(List.of("engine", "brake"),
+                tree.getRoots().stream().map(CategoryTree.Node::getSlug).collect(Collectors.toList()));
+        CategoryTree.Node brake = tree.findBySlug("brake").orElseThrow();
+        assertEquals(1, brake.getProductCount());
+        assertEquals(4, brake.getTotalProductCount());
+        assertEquals(List.of("pads", "discs"),
+                brake.getChildren().stream().map(CategoryTree.Node::getSlug).collect(Collectors.toList()));
+
+        CategoryTree.Node discs = tree.findById("4").orElseThrow();
+        assertEquals(1, discs.getTotalProductCount());
+        assertEquals(1, discs.getDepth());
+        assertEquals(List.of("brake", "discs"), discs.getPath());
+
+        assertTrue(tree.findBySlug("hidden").isEmpty());
+        assertTrue(tree.findBySlug("orphan").isEmpty());
+        assertEquals(4, tree.getCategoryCount());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.BrandDocument;
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FitmentIndexTest {
+
+    private static BrandDocument.ModelInfo model(String name, int yearFrom, int yearTo) {
+        BrandDocument.ModelInfo info = new BrandDocument.ModelInfo();
+        info.setName(name);
+        info.setYearFrom(yearFrom);
+        info.setYearTo(yearTo);
+        return info;
+    }
+
+    private static BrandDocument brand(String name, BrandDocument.ModelInfo... models) {
+        BrandDocument b = new BrandDocument();
+        b.setName(name);
+        b.setActive(true);
+        b.setModels(List.of(models));
+        return b;
+    }
+
+    private static ProductDocument product(String id, String brand, String... compatibleModels) {
+        ProductDocument p = new ProductDocument();
+        p.setId(id);
+        p.setBrand(brand);
+        p.setCompatibleModels(List.of(compatibleModels));
+        p.setActive(true);
+        return p;
+    }
+
+    private static Set<String> ids(List<ProductDocument> products) {
+        return products.stream().map(ProductDocument::getId).collect(Collectors.toSet());
+    }
+
+    private static FitmentIndex index() {
+        FitmentIndex index = new FitmentIndex(Mockito.mock(BrandCatalogReplica.class),
+                Mockito.mock(ProductCatalogReplica.class));
+        index.rebuildModels(List.of(brand("Honda", model("CB650R", 2019, 0), model("CBR600RR", 2007, 2016))));
+        index.applyProductChanges(List.of(
+                product("range", "Honda", "CB650R (2019-2021)"),
+                product("open", "Honda", "CB650R 2020-"),
+                product("single", "Honda", "CBR600RR (2010)"),
+                product("anyBrand", null, "cb-650r"),
+                product("unparsed", "Honda", "Mystery Bike 20x9"),
+                product("displacement", "Ducati", "Monster 1200 (2017-2020)", "Monster 1200")), List.of(), true);
+        return index;
+    }
+
+    @Test
+    void yearRanges_closedOpenAndSingle() {
+        FitmentIndex index = index();
+        assertEquals(Set.of("range", "anyBrand"), ids(index.findFittingProducts("Honda", "CB650R", 2019, null)));
+        assertEquals(Set.of("open", "anyBrand"), ids(index.findFittingProducts("honda", "cb 650r", 2023, null)));
+        assertEquals(Set.of("range", "open", "anyBrand"), ids(index.findFittingProducts("Honda", "CB650R", null, null)));
+        assertEquals(Set.of("single"), ids(index.findFittingProducts("Honda", "CBR600RR", 2010, null)));
+        assertTrue(index.findFittingProducts("Honda", "CBR600RR", 2011, null).isEmpty());
+    }
+
+    @Test
+    void unknownModels_matchDeclarationsByName() {
+        FitmentIndex index = index();
+        // No year in the entry: the digits stay part of the model name
+        assertEquals(Set.of("unparsed"), ids(index.findFittingProducts("Honda", "Mystery Bike 20x9", 2015, null)));
+        // Four digits that can't be a year are part of the name, with or without a range after them
+        assertEquals(Set.of("displacement"), ids(index.findFittingProducts("Ducati", "Monster 1200", 2018, null)));
+        assertEquals(Set.of("displacement"), ids(index.findFittingProducts("Ducati", "Monster 1200", 2022, null)));
+        assertTrue(index.findFittingProducts("Ducati", "Monster", null, null).isEmpty());
+    }
+
+    @Test
+    void findModels_bucketsProductionYears() {
+        FitmentIndex index = index();
+        assertEquals(List.of("CBR600RR"), index.findModels("Honda", null, 2012).stream()
+                .map(FitmentIndex.VehicleModel::getName).collect(Collectors.toList()));
+        assertEquals(List.of("CB650R"), index.findModels("HONDA", null, 2021).stream()
+                .map(FitmentIndex.VehicleModel::getName).collect(Collectors.toList()));
+        assertThrows(IllegalArgumentException.class, () -> index.findFittingProducts(null, " ", 2020, null));
+    }
+
+    @Test
+    void productChanges_replaceDeclarations() {
+        FitmentIndex index = index();
+        index.applyProductChanges(List.of(product("range", "Honda", "CBR600RR")), List.of("anyBrand"), false);
+        assertEquals(Set.of("open"), ids(index.findFittingProducts("Honda", "CB650R", null, null)));
+        assertEquals(Set.of("range"), ids(index.findFittingProducts("Honda", "CBR600RR", 2015, null)));
+    }
+}
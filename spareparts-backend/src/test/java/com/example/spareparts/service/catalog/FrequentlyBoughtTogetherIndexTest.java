@@ -0,0 +1,70 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.OrderDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrequentlyBoughtTogetherIndexTest {
+
+    private static OrderDocument order(String... productIds) {
+        List<OrderDocument.OrderItemDocument> items = new ArrayList<>();
+        for (String productId : productIds) {
+            OrderDocument.OrderItemDocument item = new OrderDocument.OrderItemDocument();
+            item.setProductId(productId);
+            item.setQuantity(1);
+            items.add(item);
+        }
+        OrderDocument order = new OrderDocument();
+        order.setItems(items);
+        return order;
+    }
+
+    @Test
+    void topK_ranksByCountThenId() {
+        FrequentlyBoughtTogetherIndex index = new FrequentlyBoughtTogetherIndex(null);
+        index.recordOrder(order("pads", "discs", "fluid"));
+        index.recordOrder(order("pads", "discs"));
+        index.recordOrder(order("pads", "fluid", "cable"));
+        index.recordOrder(order("pads", "pads", "chain"));
+
+        assertEquals(List.of("discs", "fluid", "cable"), index.topK("pads", 3));
+        assertEquals(2, index.count("discs", "pads"));
+        assertEquals(List.of("pads"), index.topK("chain", 5));
+        assertTrue(index.topK("unknown", 5).isEmpty());
+    }
+
+    @Test
+    void cancelledOrders_areTakenBackOut() {
+        FrequentlyBoughtTogetherIndex index = new FrequentlyBoughtTogetherIndex(null);
+        index.recordOrder(order("pads", "discs"));
+        OrderDocument cancelled = order("pads", "fluid");
+        index.recordOrder(cancelled);
+        index.removeOrder(cancelled);
+
+        assertEquals(List.of("discs"), index.topK("pads", 5));
+        assertEquals(0, index.count("pads", "fluid"));
+
+        cancelled.setStatus("CANCELLED");
+        index.recordOrder(cancelled);
+        assertEquals(0, index.count("pads", "fluid"));
+    }
+
+    @Test
+    void rows_growPastInitialCapacity() {
+        FrequentlyBoughtTogetherIndex index = new FrequentlyBoughtTogetherIndex(null);
+        String[] basket = new String[40];
+        for (int i = 0; i < basket.length; i++) {
+            basket[i] = "p" + i;
+        }
+        index.recordOrder(order(basket));
+        index.recordOrder(order("p0", "p39"));
+
+        assertEquals(40, index.size());
+        assertEquals("p39", index.topK("p0", 1).get(0));
+        assertEquals(39, index.topK("p0", 100).size());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCodeIndexTest {
+
+    private static ProductDocument product(String id, String sku, String barcode) {
+        ProductDocument p = new ProductDocument();
+        p.setId(id);
+        p.setSku(sku);
+        p.setBarcode(barcode);
+        p.setActive(true);
+        return p;
+    }
+
+    @Test
+    void lookup_normalizesCaseAndWhitespace() {
+        ProductCodeIndex index = new ProductCodeIndex();
+        index.onReplicaChanged(List.of(product("a", "bp-100 x", "4901234567894")), List.of(), true);
+
+        assertEquals("a", index.lookup(" BP-100X ").get().getId());
+        assertEquals("a", index.lookup("4901 2345 67894").get().getId());
+        assertTrue(index.lookup("BP-101").isEmpty());
+        assertTrue(index.lookup("  ").isEmpty());
+    }
+
+    @Test
+    void sharedCode_survivesRemovalOfOneOwner() {
+        ProductCodeIndex index = new ProductCodeIndex();
+        index.onReplicaChanged(List.of(product("a", "BP-100", null), product("b", "bp-100 ", null)), List.of(), true);
+        assertEquals("a", index.lookup("BP-100").get().getId());
+
+        index.onReplicaChanged(List.of(), List.of("a"), false);
+        assertEquals("b", index.lookup("BP-100").get().getId());
+
+        ProductDocument inactive = product("b", "BP-100", null);
+        inactive.setActive(false);
+        index.onReplicaChanged(List.of(inactive), List.of(), false);
+        assertTrue(index.lookup("BP-100").isEmpty());
+    }
+
+    @Test
+    void changedCode_dropsOldMapping() {
+        ProductCodeIndex index = new ProductCodeIndex();
+        index.onReplicaChanged(List.of(product("a", "OLD-1", null)), List.of(), true);
+        index.onReplicaChanged(List.of(product("a", "NEW-1", "NEW-1")), List.of(), false);
+
+        assertTrue(index.lookup("OLD-1").isEmpty());
+        assertEquals("a", index.lookup("new-1").get().getId());
+    }
+}
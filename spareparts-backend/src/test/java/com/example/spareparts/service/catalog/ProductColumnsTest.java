@@ -0,0 +1,72 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductColumnsTest {
+
+    private static ProductDocument product(String id, String category, String brand, double price, int stock,
+            int reorderLevel) {
+        ProductDocument p = new ProductDocument();
+        p.setId(id);
+        p.setCategory(category);
+        p.setBrand(brand);
+        p.setPrice(price);
+        p.setStock(stock);
+        p.setReorderLevel(reorderLevel);
+        p.setActive(true);
+        return p;
+    }
+
+    private static List<String> ids(List<ProductDocument> products) {
+        return products.stream().map(ProductDocument::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void inventory_aggregatesOverColumns() {
+        ProductColumns columns = new ProductColumns();
+        columns.rebuild(List.of(
+                product("a", "brake", "Honda", 10.0, 20, 5),
+                product("b", "brake", "Yamaha", 5.0, 3, 5),
+                product("c", "engine", "Honda", 100.0, 0, 2),
+                product("d", null, null, 1.0, 12, 15)));
+
+        ProductColumns.Inventory inventory = columns.inventory(10);
+        assertEquals(4, inventory.getProductCount());
+        assertEquals(10.0 * 20 + 5.0 * 3 + 1.0 * 12, inventory.getInventoryValue(), 1e-9);
+        assertEquals(2, inventory.getInStock());
+        assertEquals(1, inventory.getLowStock());
+        assertEquals(1, inventory.getOutOfStock());
+        assertEquals(3, inventory.getBelowReorderLevel());
+        assertEquals(Map.of("brake", 2L, "engine", 1L, ProductColumns.UNCATEGORIZED, 1L),
+                inventory.getProductsByCategory());
+        assertEquals(Map.of("Honda", 2L, "Yamaha", 1L), inventory.getProductsByBrand());
+        assertEquals(List.of("c", "b"), ids(columns.findLowStock(5)));
+    }
+
+    @Test
+    void replicaChanges_keepRowsDense() {
+        ProductColumns columns = new ProductColumns();
+        columns.rebuild(List.of(
+                product("a", "brake", "Honda", 10.0, 20, 5),
+                product("b", "brake", "Honda", 5.0, 3, 5),
+                product("c", "engine", "Honda", 100.0, 1, 2)));
+
+        ProductDocument inactive = product("c", "engine", "Honda", 100.0, 1, 2);
+        inactive.setActive(false);
+        columns.onReplicaChanged(List.of(product("b", "engine", "Honda", 5.0, 30, 5), inactive),
+                List.of("a"), false);
+
+        assertEquals(1, columns.size());
+        ProductColumns.Inventory inventory = columns.inventory(10);
+        assertEquals(150.0, inventory.getInventoryValue(), 1e-9);
+        assertEquals(Map.of("engine", 1L), inventory.getProductsByCategory());
+        assertTrue(columns.findLowStock(10).isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.dto.FacetSearchResponse;
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductFacetIndexTest {
+
+    private static ProductDocument product(String id, String name, String category, String brand,
+            double price, double rating, int stock) {
+        ProductDocument p = new ProductDocument();
+        p.setId(id);
+        p.setName(name);
+        p.setCategory(category);
+        p.setBrand(brand);
+        p.setPrice(price);
+        p.setAverageRating(rating);
+        p.setStock(stock);
+        p.setReorderLevel(5);
+        p.setActive(true);
+        return p;
+    }
+
+    private static ProductFacetIndex index() {
+        ProductFacetIndex index = new ProductFacetIndex();
+        index.rebuild(List.of(
+                product("1", "Brake Pads", "brake", "Honda", 79.99, 4.5, 20),
+                product("2", "Brake Lines", "brake", "Kawasaki", 54.99, 3.2, 3),
+                product("3", "Engine Oil", "engine", "Honda", 45.99, 4.1, 0),
+                product("4", "Air Filter", "engine", "Yamaha", 29.99, 0, 50)));
+        return index;
+    }
+
+    @Test
+    void query_intersectsFacets_andCountsAlternatives() {
+        FacetSearchResponse<ProductDocument> result = index().query(Map.of(
+                ProductFacetIndex.CATEGORY, List.of("Brake"),
+                ProductFacetIndex.RATING, List.of("4+")), 0, 10);
+
+        assertEquals(1, result.getTotal());
+        assertEquals("1", result.getItems().get(0).getId());
+        // Category counts ignore the category filter but respect the rating filter
+        assertEquals(Map.of("brake", 1, "engine", 1), result.getFacets().get(ProductFacetIndex.CATEGORY));
+        assertEquals(Integer.valueOf(2), result.getFacets().get(ProductFacetIndex.RATING).get("3+"));
+    }
+
+    @Test
+    void query_reflectsReplicaChanges() {
+        ProductFacetIndex index = index();
+        ProductDocument restocked = product("3", "Engine Oil", "engine", "Honda", 45.99, 4.1, 40);
+        index.onReplicaChanged(List.of(restocked), List.of("4"), false);
+
+        FacetSearchResponse<ProductDocument> result = index.query(Map.of(
+                ProductFacetIndex.STOCK, List.of("in_stock", "low_stock"),
+                ProductFacetIndex.BRAND, List.of("honda", "kawasaki")), 0, 10);
+
+        assertEquals(3, result.getTotal());
+        assertEquals("Brake Lines", result.getItems().get(0).getName());
+        assertFalse(result.getFacets().get(ProductFacetIndex.BRAND).containsKey("Yamaha"));
+        assertThrows(IllegalArgumentException.class, () -> index.query(Map.of("color", List.of("red")), 0, 10));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSearchIndexTest {
+
+    private static ProductDocument product(String id, String name, String description, String category,
+            String brand, String sku) {
+        ProductDocument p = new ProductDocument();
+        p.setId(id);
+        p.setName(name);
+        p.setDescription(description);
+        p.setCategory(category);
+        p.setBrand(brand);
+        p.setSku(sku);
+        p.setActive(true);
+        return p;
+    }
+
+    @Test
+    void search_requiresEveryToken_andRanksNameHitsFirst() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                product("1", "EBC Sintered Brake Pads", "Brake pads for aggressive riding", "brake", null, "BRK-PAD-002"),
+                product("2", "Stainless Steel Brake Lines", "Improved brake feel", "brake", "Kawasaki", "BRK-LIN-003"),
+                product("3", "Tank Bag", "Fits next to your brake lines", "accessories", null, "ACC-BAG-002")));
+
+        List<ProductDocument> results = index.search("brake lines");
+        assertEquals(2, results.size());
+        assertEquals("2", results.get(0).getId());
+        assertEquals("3", results.get(1).getId());
+    }
+
+    @Test
+    void search_matchesPrefixesAndSkus() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                product("1", "EBC Sintered Brake Pads", null, "brake", null, "BRK-PAD-002")));
+
+        assertEquals(1, index.search("brak").size());
+        assertEquals(1, index.search("BRK-PAD-002").size());
+        assertEquals(1, index.search("brkpad002").size());
+        assertTrue(index.search("clutch").isEmpty());
+    }
+
+    @Test
+    void search_correctsTyposWithinEditDistance() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                product("1", "NGK Iridium Spark Plug", null, "engine", null, "ENG-SPK-004"),
+                product("2", "EBC Sintered Brake Pads", null, "brake", null, "BRK-PAD-002")));
+
+        List<ProductDocument> results = index.search("sprak plgu");
+        assertEquals(1, results.size());
+        assertEquals("1", results.get(0).getId());
+        assertEquals(1, index.search("brak pda").size());
+        assertEquals(1, index.search("brake psds").size());
+        assertTrue(index.search("sprocket").isEmpty());
+
+        assertEquals(1, ProductSearchIndex.editDistance("sprak", "spark", 2));
+        assertEquals(3, ProductSearchIndex.editDistance("clutch", "spark", 2));
+    }
+
+    @Test
+    void upsertAndRemove_keepIndexInSync() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(product("1", "Oil Filter", null, "engine", null, "ENG-FLT-003")));
+
+        index.upsert(product("1", "Air Filter", null, "engine", null, "ENG-FLT-003"));
+        assertTrue(index.search("oil").isEmpty());
+        assertEquals(1, index.search("air").size());
+
+        ProductDocument inactive = product("1", "Air Filter", null, "engine", null, "ENG-FLT-003");
+        inactive.setActive(false);
+        index.upsert(inactive);
+        assertTrue(index.search("air").isEmpty());
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.spareparts.service.catalog;
+
+import com.example.spareparts.model.firestore.ProductDocument;
+import com.example.spareparts.repository.firestore.PageCursor;
+import com.example.spareparts.repository.firestore.ProductSort;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSortIndexTest {
+
+    private static ProductDocument product(String id, String category, double price, double rating) {
+        ProductDocument p = new ProductDocument();
+        p.setId(id);
+        p.setName("Part " + id);
+        p.setCategory(category);
+        p.setPrice(price);
+        p.setAverageRating(rating);
+        p.setActive(true);
+        return p;
+    }
+
+    private static List<String> ids(List<ProductDocument> products) {
+        return products.stream().map(ProductDocument::getId).collect(Collectors.toList());
+    }
+
+    private static ProductSortIndex index() {
+        ProductSortIndex index = new ProductSortIndex();
+        index.rebuild(List.of(
+                product("a", "brake", 79.99, 4.5),
+                product("b", "brake", 54.99, 3.0),
+                product("c", "engine", 45.99, 4.8),
+                product("d", "engine", 12.99, 4.5),
+                product("e", "engine", 299.99, 2.0)));
+        return index;
+    }
+
+    @Test
+    void page_walksFromCursorAndWithinRange() {
+        ProductSortIndex index = index();
+
+        List<ProductDocument> first = index.page(ProductSort.RATING, true, null, null, null, null, null, null, 2);
+        assertEquals(List.of("c", "d"), ids(first));
+        ProductDocument last = first.get(1);
+        PageCursor cursor = new PageCursor(ProductSort.RATING, true, ProductSort.RATING.valueOf(last), last.getId());
+        assertEquals(List.of("a", "b"),
+                ids(index.page(ProductSort.RATING, true, cursor, null, null, null, null, null, 2)));
+
+        assertEquals(List.of("c", "b", "a"),
+                ids(index.page(ProductSort.PRICE, false, null, ProductSort.PRICE, 40.0, 80.0, null, null, 10)));
+        // Ranged on price, ordered by rating, filtered to one category
+        assertEquals(List.of("c"), ids(index.page(ProductSort.RATING, true, null, ProductSort.PRICE, 40.0, null,
+                ProductSortIndex.CATEGORY, "engine", 1)));
+    }
+
+    @Test
+    void page_walksCategoryIndexWithCursor() {
+        ProductSortIndex index = index();
+
+        List<ProductDocument> first = index.page(ProductSort.PRICE, false, null, null, null, null,
+                ProductSortIndex.CATEGORY, "engine", 2);
+        assertEquals(List.of("d", "c"), ids(first));
+        ProductDocument last = first.get(1);
+        PageCursor cursor = new PageCursor(ProductSort.PRICE, false, ProductSort.PRICE.valueOf(last), last.getId());
+        assertEquals(List.of("e"), ids(index.page(ProductSort.PRICE, false, cursor, null, null, null,
+                ProductSortIndex.CATEGORY, "engine", 2)));
+        assertTrue(index.page(ProductSort.PRICE, false, null, null, null, null,
+                ProductSortIndex.CATEGORY, "exhaust", 2).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> index.page(ProductSort.PRICE, false, null, null,
+                null, null, "supplierId", "s1", 2));
+    }
+
+    @Test
+    void page_wideRangeOnOtherFieldWalksSortOrder() {
+        // A cap of 2 makes the 40+ price range (4 products) too wide to collect and re-sort
+        ProductSortIndex index = new ProductSortIndex(2);
+        index.rebuild(List.of(
+                product("a", "brake", 79.99, 4.5),
+                product("b", "brake", 54.99, 3.0),
+                product("c", "engine", 45.99, 4.8),
+                product("d", "engine", 12.99, 4.5),
+                product("e", "engine", 299.99, 2.0)));
+
+        assertEquals(List.of("c", "a", "b", "e"),
+                ids(index.page(ProductSort.RATING, true, null, ProductSort.PRICE, 40.0, null, null, null, 10)));
+        assertEquals(List.of("b"),
+                ids(index.page(ProductSort.RATING, true, null, ProductSort.PRICE, 50.0, 60.0, null, null, 10)));
+    }
+
+    @Test
+    void replicaChanges_moveEntries() {
+        ProductSortIndex index = index();
+        index.onReplicaChanged(List.of(product("e", "engine", 5.0, 2.0)), List.of("d"), false);
+
+        assertEquals(List.of("e", "c", "b", "a"),
+                ids(index.page(ProductSort.PRICE, false, null, null, null, null, null, null, 10)));
+        assertEquals(4, index.size());
+    }
+}
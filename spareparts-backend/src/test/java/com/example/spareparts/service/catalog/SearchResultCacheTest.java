@@ -0,0 +1,60 @@
+package com.example.spareparts.service.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchResultCacheTest {
+
+    @Test
+    void get_loadsOncePerVersion() {
+        SearchResultCache<List<String>> cache = new SearchResultCache<>(10, 100, List::size);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(List.of("a"), cache.get("oil filter", 1, () -> { loads.incrementAndGet(); return List.of("a"); }));
+        assertEquals(List.of("a"), cache.get("oil filter", 1, () -> { loads.incrementAndGet(); return List.of("x"); }));
+        assertEquals(1, loads.get());
+
+        // The index moved on: the old entry is stale
+        assertEquals(List.of("b"), cache.get("oil filter", 2, () -> { loads.incrementAndGet(); return List.of("b"); }));
+        assertEquals(2, loads.get());
+
+        Map<String, Object> stats = cache.stats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(1.0 / 3, (double) stats.get("hitRate"), 1e-9);
+    }
+
+    @Test
+    void put_evictsLeastRecentlyUsedByCountAndWeight() {
+        SearchResultCache<List<String>> cache = new SearchResultCache<>(3, 5, List::size);
+        cache.put("a", 1, List.of("1"));
+        cache.put("b", 1, List.of("1"));
+        cache.put("c", 1, List.of("1"));
+        cache.getIfPresent("a", 1);
+        cache.put("d", 1, List.of("1"));
+
+        assertNull(cache.getIfPresent("b", 1));
+        assertNotNull(cache.getIfPresent("a", 1));
+
+        // Weight 3 pushes the total to 6 > 5
+        cache.put("e", 1, List.of("1", "2", "3"));
+        assertEquals(3, cache.size());
+        assertNull(cache.getIfPresent("c", 1));
+        assertNotNull(cache.getIfPresent("e", 1));
+
+        cache.put("huge", 1, List.of("1", "2", "3", "4", "5", "6"));
+        assertNull(cache.getIfPresent("huge", 1));
+    }
+
+    @Test
+    void keys_ignoreCaseOrderAndSpacing() {
+        assertEquals(ProductQueryCache.searchKey("Oil  Filter"), ProductQueryCache.searchKey("filter oil"));
+        assertEquals(ProductQueryCache.facetKey(Map.of("brand", List.of("Honda", "bosch")), 0, 20),
+                ProductQueryCache.facetKey(Map.of("brand", List.of("BOSCH", "honda ")), 0, 20));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.spareparts.service.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuggestionTrieTest {
+
+    private static SuggestionTrie.Suggestion suggestion(String text, String type, double weight) {
+        return new SuggestionTrie.Suggestion(text, type, text, weight);
+    }
+
+    @Test
+    void suggest_matchesWordStarts_rankedByWeight() {
+        SuggestionTrie trie = new SuggestionTrie.Builder()
+                .add(suggestion("EBC Sintered Brake Pads", "PRODUCT", 3))
+                .add(suggestion("Stainless Steel Brake Lines", "PRODUCT", 7))
+                .add(suggestion("Brakes", "CATEGORY", 10))
+                .add(suggestion("Tank Bag", "PRODUCT", 50))
+                .build();
+
+        List<SuggestionTrie.Suggestion> results = trie.suggest("bra", 10);
+        assertEquals(3, results.size());
+        assertEquals("Brakes", results.get(0).getText());
+        assertEquals("Stainless Steel Brake Lines", results.get(1).getText());
+        assertEquals("EBC Sintered Brake Pads", results.get(2).getText());
+
+        assertEquals(1, trie.suggest("brake p", 10).size());
+        assertEquals(1, trie.suggest("BRAKE-PADS", 10).size());
+        assertTrue(trie.suggest("brakez", 10).isEmpty());
+        assertEquals(1, trie.suggest("bra", 1).size());
+    }
+
+    @Test
+    void suggest_matchesSkusAcrossSeparators() {
+        SuggestionTrie trie = new SuggestionTrie.Builder()
+                .add(suggestion("ENG-PST-001", "SKU", 1))
+                .add(suggestion("ENG-PST-002", "SKU", 2))
+                .build();
+
+        List<SuggestionTrie.Suggestion> results = trie.suggest("eng pst", 10);
+        assertEquals(2, results.size());
+        assertEquals("ENG-PST-002", results.get(0).getText());
+        assertEquals(1, trie.suggest("pst-001", 10).size());
+        assertTrue(trie.suggest("", 10).isEmpty());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.spareparts.service.firestore;
+
+import com.example.spareparts.dto.OrderStatusUpdate;
+import com.example.spareparts.dto.OrderUpdateResult;
+import com.example.spareparts.model.firestore.OrderDocument;
+import com.example.spareparts.repository.firestore.OrderFirestoreRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderFirestoreServiceTest {
+
+    /**
+     * Records bulk writes; only orders in statuses exist.
+     */
+    private static class FakeOrderRepository extends OrderFirestoreRepository {
+        final Map<String, String> statuses = new HashMap<>();
+        final Map<String, Map<String, Object>> written = new LinkedHashMap<>();
+
+        FakeOrderRepository() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public Map<String, StatusVersion> findStatusVersions(Collection<String> orderIds) {
+            Map<String, StatusVersion> versions = new HashMap<>();
+            for (String id : orderIds) {
+                if (statuses.containsKey(id)) {
+                    versions.put(id, new StatusVersion(statuses.get(id), null));
+                }
+            }
+            return versions;
+        }
+
+        @Override
+        public Map<String, String> bulkUpdate(Map<String, Map<String, Object>> updates,
+                Map<String, StatusVersion> versions) {
+            updates.forEach((id, fields) -> {
+                assertTrue(versions.containsKey(id));
+                written.put(id, fields);
+            });
+            return Map.of();
+        }
+    }
+
+    @Test
+    void bulkUpdateFulfilment_reportsEachOrder() {
+        FakeOrderRepository repository = new FakeOrderRepository();
+        repository.statuses.putAll(Map.of("a", "SHIPPED", "b", "CONFIRMED", "c", "PENDING", "d", "PENDING"));
+        OrderFirestoreService service = new OrderFirestoreService(repository, null, null, null);
+
+        List<OrderUpdateResult> results = service.bulkUpdateFulfilment(List.of(
+                new OrderStatusUpdate("a", "DELIVERED", null),
+                new OrderStatusUpdate("b", null, "TRK-1"),
+                new OrderStatusUpdate("c", "CANCELLED", null),
+                new OrderStatusUpdate("d", "SHIPPED", "TRK-2"),
+                new OrderStatusUpdate("d", "DELIVERED", null),
+                new OrderStatusUpdate("gone", "SHIPPED", null),
+                new OrderStatusUpdate(null, "SHIPPED", null)));
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "d", "gone", null),
+                results.stream().map(OrderUpdateResult::getOrderId).collect(Collectors.toList()));
+        assertEquals(List.of(true, true, false, false, false, false, false),
+                results.stream().map(OrderUpdateResult::isSuccess).collect(Collectors.toList()));
+        assertEquals("Order not found", results.get(5).getError());
+
+        assertEquals(Set.of("a", "b"), repository.written.keySet());
+        assertEquals(Map.of("status", "SHIPPED", "trackingNumber", "TRK-1"), repository.written.get("b"));
+    }
+
+    @Test
+    void bulkUpdateFulfilment_rejectsBackwardAndCancelledTransitions() {
+        FakeOrderRepository repository = new FakeOrderRepository();
+        repository.statuses.putAll(Map.of("cancelled", "CANCELLED", "delivered", "DELIVERED",
+                "processing", "PROCESSING", "shipped", "SHIPPED"));
+        OrderFirestoreService service = new OrderFirestoreService(repository, null, null, null);
+
+        List<OrderUpdateResult> results = service.bulkUpdateFulfilment(List.of(
+                new OrderStatusUpdate("cancelled", "SHIPPED", null),
+                new OrderStatusUpdate("delivered", null, "TRK-3"),
+                new OrderStatusUpdate("processing", "CONFIRMED", null),
+                new OrderStatusUpdate("shipped", "SHIPPED", "TRK-4")));
+
+        assertEquals(List.of(false, false, false, true),
+                results.stream().map(OrderUpdateResult::isSuccess).collect(Collectors.toList()));
+        assertEquals("Order can't move from CANCELLED to SHIPPED", results.get(0).getError());
+        assertEquals("Order can't move from DELIVERED to SHIPPED", results.get(1).getError());
+        assertEquals(Set.of("shipped"), repository.written.keySet());
+    }
+
+    @Test
+    void validateOrder_rejectsProductIdsThatAreNotDocumentIds() {
+        OrderFirestoreService service = new OrderFirestoreService(new FakeOrderRepository(), null, null, null);
+        for (String productId : List.of("", " ", "a/b")) {
+            OrderDocument.OrderItemDocument item = new OrderDocument.OrderItemDocument();
+            item.setProductId(productId);
+            item.setQuantity(1);
+            OrderDocument order = new OrderDocument();
+            order.setUserId("u1");
+            order.setItems(List.of(item));
+            assertThrows(IllegalArgumentException.class, () -> service.validateOrder(order));
+        }
+    }
+
+    @Test
+    void bulkUpdateFulfilment_limitsRequestSize() {
+        OrderFirestoreService service = new OrderFirestoreService(new FakeOrderRepository(), null, null, null);
+        List<OrderStatusUpdate> updates = Collections.nCopies(OrderFirestoreService.MAX_BULK_UPDATES + 1,
+                new OrderStatusUpdate("a", "SHIPPED", null));
+        assertThrows(IllegalArgumentException.class, () -> service.bulkUpdateFulfilment(updates));
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.spareparts.service.firestore;
+
+import com.example.spareparts.model.firestore.OrderDocument;
+import com.example.spareparts.repository.firestore.OrderFirestoreRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderGroupCommitterTest {
+
+    /**
+     * Accepts every order and records the size of each group it was given. Groups containing
+     * an order for a product in failing fail as a whole.
+     */
+    private static class RecordingRepository extends OrderFirestoreRepository {
+        final List<Integer> groups = new CopyOnWriteArrayList<>();
+        final Set<String> failing = new HashSet<>();
+        RuntimeException failure;
+
+        RecordingRepository() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public void placeOrders(List<Placement> placements) {
+            groups.add(placements.size());
+            if (failure != null) {
+                throw failure;
+            }
+            for (Placement placement : placements) {
+                if (placement.getQuantities().keySet().stream().anyMatch(failing::contains)) {
+                    throw new IllegalArgumentException("bad product");
+                }
+            }
+            for (Placement placement : placements) {
+                placement.getOrder().setId("order-" + placement.getQuantities().keySet().iterator().next());
+            }
+        }
+    }
+
+    private static Map<String, Integer> items(String prefix, int count) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            quantities.put(prefix + i, 1);
+        }
+        return quantities;
+    }
+
+    @Test
+    void place_commitsConcurrentOrdersTogether() throws Exception {
+        RecordingRepository repository = new RecordingRepository();
+        OrderGroupCommitter committer = new OrderGroupCommitter(repository, 100);
+        try {
+            List<CompletableFuture<OrderDocument>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                results.add(committer.place(new OrderDocument(), items("p" + i + "-", 1)));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals("order-p" + i + "-0", results.get(i).get(5, TimeUnit.SECONDS).getId());
+            }
+            assertEquals(List.of(3), repository.groups);
+        } finally {
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void place_splitsGroupsAtWriteLimit() throws Exception {
+        RecordingRepository repository = new RecordingRepository();
+        OrderGroupCommitter committer = new OrderGroupCommitter(repository, 100);
+        try {
+            // 1 + 2 * 49 = 99 writes each: five fit under the limit together with the counter
+            // Holding the committer's lock keeps the early flush from starting before all seven are in
+            List<CompletableFuture<OrderDocument>> results = new ArrayList<>();
+            synchronized (committer) {
+                for (int i = 0; i < 7; i++) {
+                    results.add(committer.place(new OrderDocument(), items("p" + i + "-", 49)));
+                }
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(5, 2), repository.groups);
+        } finally {
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void place_failsWholeGroupWhenCommitFails() {
+        RecordingRepository repository = new RecordingRepository();
+        repository.failure = new RuntimeException("aborted");
+        OrderGroupCommitter committer = new OrderGroupCommitter(repository, 10);
+        try {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> committer.place(new OrderDocument(), items("p", 1)).get(5, TimeUnit.SECONDS));
+            assertEquals("aborted", e.getCause().getMessage());
+        } finally {
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void place_failedGroupFailsOnlyTheOffendingOrder() throws Exception {
+        RecordingRepository repository = new RecordingRepository();
+        repository.failing.add("bad0");
+        OrderGroupCommitter committer = new OrderGroupCommitter(repository, 100);
+        try {
+            CompletableFuture<OrderDocument> first = committer.place(new OrderDocument(), items("p", 1));
+            CompletableFuture<OrderDocument> bad = committer.place(new OrderDocument(), items("bad", 1));
+            CompletableFuture<OrderDocument> last = committer.place(new OrderDocument(), items("q", 1));
+
+            assertEquals("order-p0", first.get(5, TimeUnit.SECONDS).getId());
+            assertEquals("order-q0", last.get(5, TimeUnit.SECONDS).getId());
+            ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+            assertEquals("bad product", e.getCause().getMessage());
+            assertEquals(List.of(3, 1, 1, 1), repository.groups);
+        } finally {
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void shutdown_failsOrdersPlacedAfterwards() {
+        RecordingRepository repository = new RecordingRepository();
+        OrderGroupCommitter committer = new OrderGroupCommitter(repository, 10);
+        committer.shutdown();
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> committer.place(new OrderDocument(), items("p", 1)).get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertTrue(repository.groups.isEmpty());
+    }
+
+    @Test
+    void shutdown_commitsScheduledGroupFirst() throws Exception {
+        RecordingRepository repository = new RecordingRepository();
+        OrderGroupCommitter committer = new OrderGroupCommitter(repository, 50);
+        CompletableFuture<OrderDocument> result = committer.place(new OrderDocument(), items("p", 1));
+        committer.shutdown();
+
+        assertEquals("order-p0", result.get(5, TimeUnit.SECONDS).getId());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.spareparts.service.firestore;
+
+import com.example.spareparts.dto.OrderIntakeStatus;
+import com.example.spareparts.model.firestore.OrderDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderIntakeServiceTest {
+
+    /**
+     * Places orders without Firestore; blocks until released so tests can fill the queue.
+     */
+    private static class FakeOrderService extends OrderFirestoreService {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        FakeOrderService() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public OrderDocument createOrder(OrderDocument order) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if ("out-of-stock".equals(order.getItems().get(0).getProductId())) {
+                throw new RuntimeException("Error creating order: Insufficient stock for: Chain");
+            }
+            order.setId("order-" + order.getItems().get(0).getProductId());
+            return order;
+        }
+    }
+
+    private static OrderDocument order(String userId, String productId) {
+        OrderDocument.OrderItemDocument item = new OrderDocument.OrderItemDocument();
+        item.setProductId(productId);
+        item.setQuantity(1);
+        OrderDocument order = new OrderDocument();
+        order.setUserId(userId);
+        order.setItems(List.of(item));
+        return order;
+    }
+
+    @Test
+    void submit_queuesAndReportsOutcome() throws Exception {
+        FakeOrderService orders = new FakeOrderService();
+        OrderIntakeService intake = new OrderIntakeService(orders, 1, 10, 5000);
+        try {
+            OrderIntakeStatus placed = intake.submit(order("u1", "p1"));
+            OrderIntakeStatus failed = intake.submit(order("u1", "out-of-stock"));
+            assertEquals(OrderIntakeStatus.QUEUED, placed.getStatus());
+            assertTrue(intake.getStatus(placed.getHandle(), "u2").isEmpty());
+
+            orders.release.countDown();
+            Optional<OrderIntakeStatus> done = intake.awaitStatus(placed.getHandle(), "u1", 5000).get();
+            assertEquals(OrderIntakeStatus.COMPLETED, done.get().getStatus());
+            assertEquals("order-p1", done.get().getOrderId());
+
+            OrderIntakeStatus rejected = intake.awaitStatus(failed.getHandle(), "u1", 5000).get().get();
+            assertEquals(OrderIntakeStatus.FAILED, rejected.getStatus());
+            assertTrue(rejected.getError().contains("Insufficient stock"));
+        } finally {
+            intake.shutdown();
+        }
+    }
+
+    @Test
+    void submit_rejectsWhenQueueIsFull() {
+        FakeOrderService orders = new FakeOrderService();
+        OrderIntakeService intake = new OrderIntakeService(orders, 1, 1, 5000);
+        try {
+            intake.submit(order("u1", "p1"));
+            // The worker may not have taken the first order yet; at most two fit
+            assertThrows(RejectedExecutionException.class, () -> {
+                for (int i = 0; i < 3; i++) {
+                    intake.submit(order("u1", "p" + i));
+                }
+            });
+            assertThrows(IllegalArgumentException.class, () -> intake.submit(order(null, "p1")));
+        } finally {
+            orders.release.countDown();
+            intake.shutdown();
+        }
+    }
+
+    @Test
+    void shutdown_drainsQueuedOrders() throws Exception {
+        FakeOrderService orders = new FakeOrderService();
+        OrderIntakeService intake = new OrderIntakeService(orders, 1, 10, 5000);
+        OrderIntakeStatus first = intake.submit(order("u1", "p1"));
+        OrderIntakeStatus second = intake.submit(order("u1", "p2"));
+
+        orders.release.countDown();
+        intake.shutdown();
+
+        assertEquals("order-p1", intake.getStatus(first.getHandle(), "u1").get().getOrderId());
+        assertEquals("order-p2", intake.getStatus(second.getHandle(), "u1").get().getOrderId());
+        assertThrows(RejectedExecutionException.class, () -> intake.submit(order("u1", "p3")));
+    }
+
+    @Test
+    void shutdown_failsOrdersStillQueuedAfterTimeout() throws Exception {
+        FakeOrderService orders = new FakeOrderService();
+        OrderIntakeService intake = new OrderIntakeService(orders, 1, 10, 50);
+        intake.submit(order("u1", "p1"));
+        OrderIntakeStatus queued = intake.submit(order("u1", "p2"));
+
+        intake.shutdown();
+
+        OrderIntakeStatus status = intake.awaitStatus(queued.getHandle(), "u1", 1000).get().get();
+        assertEquals(OrderIntakeStatus.FAILED, status.getStatus());
+    }
+}
@@ -243,7 +243,7 @@ function renderProducts(products) {
 function createProductCard(product, index) {
   const stockClass = getStockBadgeClass(product.stock);
   const stockText = getStockText(product.stock);
-  const imageUrl = (product.images && product.images[0]) || 'https://images.unsplash.com/photo-1558618666-fcd25c85cd64?w=400';
+  const imageUrl = product.thumbnail || (product.images && product.images[0]) || 'https://images.unsplash.com/photo-1558618666-fcd25c85cd64?w=400';
   const isInCart = cart.some(item => item.id === product.id);
   const delay = Math.min(index * 50, 300);
   
@@ -414,7 +414,7 @@ function addToCart(product, quantity = 1) {
       id: product.id,
       name: product.name,
       price: product.price,
-      image: product.images?.[0] || '',
+      image: product.thumbnail || product.images?.[0] || '',
       quantity: quantity
     });
   }